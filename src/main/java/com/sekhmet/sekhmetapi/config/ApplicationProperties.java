@@ -1,8 +1,11 @@
 package com.sekhmet.sekhmetapi.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Sekhmet Api.
@@ -15,6 +18,9 @@ public class ApplicationProperties {
 
     private final S3Properties s3 = new S3Properties();
     private final SmsProperties sms = new SmsProperties();
+    private final SecurityProperties security = new SecurityProperties();
+    private final CacheProperties cache = new CacheProperties();
+    private final SearchProperties search = new SearchProperties();
 
     public S3Properties getS3() {
         return s3;
@@ -24,6 +30,18 @@ public class ApplicationProperties {
         return sms;
     }
 
+    public SecurityProperties getSecurity() {
+        return security;
+    }
+
+    public CacheProperties getCache() {
+        return cache;
+    }
+
+    public SearchProperties getSearch() {
+        return search;
+    }
+
     public static class S3Properties {
 
         private String region;
@@ -60,7 +78,8 @@ public class ApplicationProperties {
     public static class SmsProperties {
 
         private final TwilioPreperties twilio = new TwilioPreperties();
-        private String passwordPhoneNumberSecret;
+        private final RateLimit rateLimit = new RateLimit();
+        private final Verification verification = new Verification();
 
         @Getter
         @Setter
@@ -74,6 +93,211 @@ public class ApplicationProperties {
             private String conversationSid;
             private String channelAdminSid;
             private String channelUserSid;
+            private long accessTokenTtlSeconds = 86400; // 24 hours
+            // a cached access token is minted again when it expires within this window
+            private long accessTokenRefreshWindowSeconds = 3600;
+        }
+
+        /**
+         * Engine sending and checking the phone verification codes: {@code twilio} (Twilio Verify) or {@code local}.
+         */
+        @Getter
+        @Setter
+        public static class Verification {
+
+            private String provider = "twilio";
+            private final Local local = new Local();
+
+            /**
+             * In-process one-time passwords, sent through the {@code SmsGateway}.
+             */
+            @Getter
+            @Setter
+            public static class Local {
+
+                private int codeLength = 6;
+                private long timeToLiveSeconds = 600;
+                private int maxAttempts = 5;
+                private int maxEntries = 100000;
+            }
+        }
+
+        /**
+         * Token buckets throttling the phone verification requests, by phone number and by client IP.
+         */
+        @Getter
+        @Setter
+        public static class RateLimit {
+
+            private boolean enabled = true;
+            private int maxKeys = 100000;
+            private final Bucket sendPerPhoneNumber = new Bucket(3, 600);
+            private final Bucket sendPerClientIp = new Bucket(20, 600);
+            private final Bucket checkPerPhoneNumber = new Bucket(10, 600);
+            private final Bucket checkPerClientIp = new Bucket(50, 600);
+
+            /**
+             * At most {@code capacity} requests, refilled evenly over {@code periodSeconds}.
+             */
+            @Getter
+            @Setter
+            public static class Bucket {
+
+                private int capacity;
+                private long periodSeconds;
+
+                public Bucket() {}
+
+                public Bucket(int capacity, long periodSeconds) {
+                    this.capacity = capacity;
+                    this.periodSeconds = periodSeconds;
+                }
+            }
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class SecurityProperties {
+
+        private final TokenCache tokenCache = new TokenCache();
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+        private final TokenEpochs tokenEpochs = new TokenEpochs();
+
+        /**
+         * Cache of already verified JWTs, used by the {@code JWTFilter} to skip the signature check.
+         */
+        @Getter
+        @Setter
+        public static class TokenCache {
+
+            private boolean enabled = true;
+            private int maxEntries = 10000;
+            private long timeToLiveSeconds = 300;
+        }
+
+        /**
+         * Dedicated executor running the BCrypt work, so that authentication bursts cannot use more than its threads.
+         */
+        @Getter
+        @Setter
+        public static class PasswordHashing {
+
+            private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            private int queueCapacity = 100;
+            private long timeoutSeconds = 10;
+            private long retryAfterSeconds = 1;
+        }
+
+        /**
+         * Per-user token epochs revoking the JWTs, reloaded from the database by every node.
+         */
+        @Getter
+        @Setter
+        public static class TokenEpochs {
+
+            private long refreshIntervalMs = 10000;
+            // revocations committed while the previous refresh was running are read again
+            private long refreshOverlapSeconds = 60;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class CacheProperties {
+
+        private final Invalidation invalidation = new Invalidation();
+        // by cache name, the other caches use the jhipster.cache.ehcache defaults
+        private final Map<String, CachePolicy> caches = new HashMap<>();
+        // how early hot entries of the single-flight caches are refreshed, 0 to let them expire
+        private double earlyRefreshBeta = 1.0;
+
+        /**
+         * Bus broadcasting the cache evictions of a node to the other ones.
+         */
+        @Getter
+        @Setter
+        public static class Invalidation {
+
+            // in-memory (single node) or postgres (LISTEN/NOTIFY on the application database)
+            private String bus = "in-memory";
+            private String channel = "cache_invalidation";
+            private long pollTimeoutMs = 500;
+            private long reconnectDelayMs = 5000;
+        }
+
+        /**
+         * Sizing and expiry of a cache. Unset limits fall back to the {@code jhipster.cache.ehcache} defaults.
+         */
+        @Getter
+        @Setter
+        public static class CachePolicy {
+
+            // heap tier, either in entries or in bytes
+            private Long maxEntries;
+            private DataSize heapSize;
+            // serialized values, out of reach of the garbage collector
+            private DataSize offHeapSize;
+            // an entry expires either after a fixed time, or once it was not read for some time
+            private Long timeToLiveSeconds;
+            private Long timeToIdleSeconds;
+        }
+    }
+
+    /**
+     * Public user search, and the Elasticsearch user search.
+     */
+    @Getter
+    @Setter
+    public static class SearchProperties {
+
+        // database (LIKE conditions, served by trigram indexes on Postgres) or elasticsearch
+        private String engine = "database";
+        // hard cap of the size of the pages of /api/_search/users
+        private int maxPageSize = 100;
+        // deepest hit reachable by page number, the index.max_result_window of Elasticsearch, beyond it use a cursor
+        private int maxResultWindow = 10000;
+        // whether the pages of /api/_search/users count all their hits, for the X-Total-Count header
+        private boolean trackTotalHits = true;
+        private final Indexing indexing = new Indexing();
+        private final Reindex reindex = new Reindex();
+
+        public boolean isElasticsearch() {
+            return "elasticsearch".equals(engine);
+        }
+
+        /**
+         * Indexing of the changed users in Elasticsearch, in bulk, once their transactions commit.
+         */
+        @Getter
+        @Setter
+        public static class Indexing {
+
+            // a bulk request is sent once that many users changed, or at the latest after the flush interval
+            private int batchSize = 500;
+            private long flushIntervalMs = 1000;
+            // the retries due and the tasks left by stopped nodes are flushed that often, refreshing the queue gauges
+            private long pollIntervalMs = 60000;
+            // failed users are retried after a delay doubling with each attempt, up to the max
+            private long retryInitialDelaySeconds = 5;
+            private long retryMaxDelaySeconds = 3600;
+            // the tasks of a batch are claimed by a node for that long, then claimed again by any node if not done
+            private long leaseSeconds = 300;
+        }
+
+        /**
+         * Full reindex of the users into a new index, which then replaces the current one.
+         */
+        @Getter
+        @Setter
+        public static class Reindex {
+
+            // users read per keyset page, and sent per bulk request
+            private int batchSize = 1000;
+            // bulk requests sent in parallel
+            private int slices = 4;
+            // the indexing of the changes is held back on all the nodes for that long, renewed while the reindex runs
+            private long leaseSeconds = 300;
         }
     }
 }
@@ -0,0 +1,51 @@
+package com.sekhmet.sekhmetapi.config;
+
+import com.sekhmet.sekhmetapi.security.PhoneVerifiedAuthenticationProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.authentication.configurers.GlobalAuthenticationConfigurerAdapter;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers the providers of the global authentication manager: the password based one, used by
+ * {@code /api/authenticate}, and the {@link PhoneVerifiedAuthenticationProvider}, used by the phone login.
+ * <p>
+ * Spring Security only creates the password based provider when no {@code AuthenticationProvider} bean exists, so both
+ * are registered here, before its own initializers run.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 5200)
+public class AuthenticationProvidersConfigurer extends GlobalAuthenticationConfigurerAdapter {
+
+    private final ApplicationContext context;
+
+    public AuthenticationProvidersConfigurer(ApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void init(AuthenticationManagerBuilder auth) throws Exception {
+        auth.apply(new ProvidersConfigurer());
+    }
+
+    private class ProvidersConfigurer extends GlobalAuthenticationConfigurerAdapter {
+
+        @Override
+        public void configure(AuthenticationManagerBuilder auth) throws Exception {
+            if (auth.isConfigured()) {
+                return;
+            }
+            DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
+            daoAuthenticationProvider.setUserDetailsService(context.getBean(UserDetailsService.class));
+            daoAuthenticationProvider.setPasswordEncoder(context.getBean(PasswordEncoder.class));
+            daoAuthenticationProvider.afterPropertiesSet();
+            auth.authenticationProvider(daoAuthenticationProvider);
+            auth.authenticationProvider(context.getBean(PhoneVerifiedAuthenticationProvider.class));
+        }
+    }
+}
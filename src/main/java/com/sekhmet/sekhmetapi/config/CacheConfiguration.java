@@ -2,11 +2,17 @@ package com.sekhmet.sekhmetapi.config;
 
 import com.sekhmet.sekhmetapi.repository.UserRepository;
 import java.time.Duration;
+import java.util.Map;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ExpiryPolicyBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
 import org.hibernate.cache.jcache.ConfigSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
@@ -23,20 +29,16 @@ import tech.jhipster.config.cache.PrefixedKeyGenerator;
 @EnableCaching
 public class CacheConfiguration {
 
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
-
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
-
-        jcacheConfiguration =
-            Eh107Configuration.fromEhcacheCacheConfiguration(
-                CacheConfigurationBuilder
-                    .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(ehcache.getMaxEntries()))
-                    .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ehcache.getTimeToLiveSeconds())))
-                    .build()
-            );
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+    private final Map<String, ApplicationProperties.CacheProperties.CachePolicy> cachePolicies;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.ehcache = jHipsterProperties.getCache().getEhcache();
+        this.cachePolicies = applicationProperties.getCache().getCaches();
     }
 
     @Bean
@@ -50,10 +52,14 @@ public class CacheConfiguration {
             createCache(cm, com.sekhmet.sekhmetapi.repository.UserRepository.USERS_BY_LOGIN_CACHE);
             createCache(cm, UserRepository.USERS_BY_ID_CACHE);
             createCache(cm, com.sekhmet.sekhmetapi.repository.UserRepository.USERS_BY_EMAIL_CACHE);
+            createCache(cm, UserRepository.USERS_BY_PHONE_NUMBER_CACHE);
             createCache(cm, com.sekhmet.sekhmetapi.domain.User.class.getName());
             createCache(cm, com.sekhmet.sekhmetapi.domain.Authority.class.getName());
             createCache(cm, com.sekhmet.sekhmetapi.domain.User.class.getName() + ".authorities");
+            createCache(cm, com.sekhmet.sekhmetapi.service.TwilioConversationService.ACCESS_TOKENS_CACHE);
+            createCache(cm, com.sekhmet.sekhmetapi.security.DomainUserDetailsService.USER_DETAILS_CACHE);
             // jhipster-needle-ehcache-add-entry
+            checkCachePolicies(cm);
         };
     }
 
@@ -62,8 +68,56 @@ public class CacheConfiguration {
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, jcacheConfiguration(cacheName));
+        }
+        // read by the cache meters
+        cm.enableStatistics(cacheName, true);
+    }
+
+    private void checkCachePolicies(javax.cache.CacheManager cm) {
+        cachePolicies
+            .keySet()
+            .stream()
+            .filter(cacheName -> cm.getCache(cacheName) == null)
+            .forEach(cacheName -> log.warn("No cache named {}, its policy is ignored", cacheName));
+    }
+
+    private javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName) {
+        ApplicationProperties.CacheProperties.CachePolicy policy = cachePolicies.getOrDefault(
+            cacheName,
+            new ApplicationProperties.CacheProperties.CachePolicy()
+        );
+
+        ResourcePoolsBuilder resourcePools = policy.getHeapSize() != null
+            ? ResourcePoolsBuilder.newResourcePoolsBuilder().heap(policy.getHeapSize().toBytes(), MemoryUnit.B)
+            : ResourcePoolsBuilder.heap(policy.getMaxEntries() != null ? policy.getMaxEntries() : ehcache.getMaxEntries());
+        if (policy.getOffHeapSize() != null) {
+            resourcePools = resourcePools.offheap(policy.getOffHeapSize().toBytes(), MemoryUnit.B);
+        }
+
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+            .withExpiry(expiryPolicy(cacheName, policy));
+        if (policy.getOffHeapSize() != null) {
+            // the off-heap tier stores the serialized keys and values, the heap one keeps the most used ones as objects
+            builder =
+                builder
+                    .withKeySerializer(new PlainJavaSerializer<>(getClass().getClassLoader()))
+                    .withValueSerializer(new PlainJavaSerializer<>(getClass().getClassLoader()));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
+    }
+
+    private ExpiryPolicy<Object, Object> expiryPolicy(String cacheName, ApplicationProperties.CacheProperties.CachePolicy policy) {
+        if (policy.getTimeToIdleSeconds() != null) {
+            // Ehcache can't bound the lifetime of an entry which is read again and again
+            if (policy.getTimeToLiveSeconds() != null) {
+                throw new IllegalArgumentException("Cache " + cacheName + " can't have both a time to live and a time to idle");
+            }
+            return ExpiryPolicyBuilder.timeToIdleExpiration(Duration.ofSeconds(policy.getTimeToIdleSeconds()));
         }
+        long timeToLiveSeconds = policy.getTimeToLiveSeconds() != null ? policy.getTimeToLiveSeconds() : ehcache.getTimeToLiveSeconds();
+        return ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(timeToLiveSeconds));
     }
 
     @Autowired(required = false)
@@ -0,0 +1,86 @@
+package com.sekhmet.sekhmetapi.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * The token epoch of a user: the JWTs issued to the user before the last revocation carry a lower epoch.
+ * <p>
+ * Only the users whose tokens were revoked at least once have an epoch, the others are at epoch {@code 0}.
+ */
+@Entity
+@Table(name = "skh_token_epoch")
+public class TokenEpoch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Size(max = 50)
+    @Id
+    @Column(length = 50)
+    private String login;
+
+    @Column(name = "epoch", nullable = false)
+    private int epoch;
+
+    @NotNull
+    @Column(name = "revoked_date", nullable = false)
+    private Instant revokedDate;
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public Instant getRevokedDate() {
+        return revokedDate;
+    }
+
+    public void setRevokedDate(Instant revokedDate) {
+        this.revokedDate = revokedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TokenEpoch)) {
+            return false;
+        }
+        return Objects.equals(login, ((TokenEpoch) o).login);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(login);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TokenEpoch{" +
+            "login='" + login + '\'' +
+            ", epoch=" + epoch +
+            ", revokedDate=" + revokedDate +
+            "}";
+    }
+}
@@ -2,6 +2,7 @@ package com.sekhmet.sekhmetapi.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.sekhmet.sekhmetapi.config.Constants;
+import com.sekhmet.sekhmetapi.domain.util.TimeOrderedUuidGenerator;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.HashSet;
@@ -17,8 +18,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 /**
  * A user.
@@ -27,12 +32,14 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 @Table(name = "skh_user")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "user")
+@Setting(settingPath = "config/elasticsearch/user-settings.json")
 public class User extends AbstractAuditingEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
     @Column(name = "id", nullable = false, unique = true)
     @Field(type = FieldType.Keyword)
     private UUID id;
@@ -41,7 +48,13 @@ public class User extends AbstractAuditingEntity implements Serializable {
     @Pattern(regexp = Constants.LOGIN_REGEX)
     @Size(min = 1, max = 50)
     @Column(length = 50, unique = true, nullable = false)
-    @Field(type = FieldType.Keyword)
+    @MultiField(
+        mainField = @Field(type = FieldType.Keyword),
+        otherFields = {
+            @InnerField(suffix = "folded", type = FieldType.Text, analyzer = "folding"),
+            @InnerField(suffix = "autocomplete", type = FieldType.Text, analyzer = "autocomplete", searchAnalyzer = "folding")
+        }
+    )
     private String login;
 
     @JsonIgnore
@@ -53,12 +66,24 @@ public class User extends AbstractAuditingEntity implements Serializable {
 
     @Size(max = 50)
     @Column(name = "first_name", length = 50)
-    @Field(type = FieldType.Keyword)
+    @MultiField(
+        mainField = @Field(type = FieldType.Keyword),
+        otherFields = {
+            @InnerField(suffix = "folded", type = FieldType.Text, analyzer = "folding"),
+            @InnerField(suffix = "autocomplete", type = FieldType.Text, analyzer = "autocomplete", searchAnalyzer = "folding")
+        }
+    )
     private String firstName;
 
     @Size(max = 50)
     @Column(name = "last_name", length = 50)
-    @Field(type = FieldType.Keyword)
+    @MultiField(
+        mainField = @Field(type = FieldType.Keyword),
+        otherFields = {
+            @InnerField(suffix = "folded", type = FieldType.Text, analyzer = "folding"),
+            @InnerField(suffix = "autocomplete", type = FieldType.Text, analyzer = "autocomplete", searchAnalyzer = "folding")
+        }
+    )
     private String lastName;
 
     @Email
@@ -74,7 +99,7 @@ public class User extends AbstractAuditingEntity implements Serializable {
 
     @NotNull
     @Column(nullable = false)
-    @Field(type = FieldType.Object, enabled = false)
+    @Field(type = FieldType.Boolean)
     private boolean activated = false;
 
     @Size(min = 2, max = 10)
@@ -103,7 +128,7 @@ public class User extends AbstractAuditingEntity implements Serializable {
     private Instant resetDate = null;
 
     @JsonIgnore
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(
         name = "skh_user_authority",
         joinColumns = { @JoinColumn(name = "user_id", referencedColumnName = "id") },
@@ -0,0 +1,143 @@
+package com.sekhmet.sekhmetapi.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A user to index in Elasticsearch, enqueued in the transaction changing it.
+ * <p>
+ * A user changed several times has several tasks, which are indexed at once. A task is deleted once the user is indexed,
+ * and otherwise retried from its next attempt date. The tasks of a user are claimed together by one node at a time, until
+ * their lease expires.
+ */
+@Entity
+@Table(name = "skh_user_index_task")
+public class UserIndexTask implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @NotNull
+    @Column(name = "enqueued_date", nullable = false)
+    private Instant enqueuedDate;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @NotNull
+    @Column(name = "next_attempt_date", nullable = false)
+    private Instant nextAttemptDate;
+
+    /**
+     * The claim of the node indexing the user, if any.
+     */
+    @Column(name = "locked_by", length = 36)
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    public Instant getEnqueuedDate() {
+        return enqueuedDate;
+    }
+
+    public void setEnqueuedDate(Instant enqueuedDate) {
+        this.enqueuedDate = enqueuedDate;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Instant nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(Instant lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserIndexTask)) {
+            return false;
+        }
+        return id != null && id.equals(((UserIndexTask) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UserIndexTask{" +
+            "id=" + id +
+            ", userId=" + userId +
+            ", enqueuedDate=" + enqueuedDate +
+            ", attempts=" + attempts +
+            ", nextAttemptDate=" + nextAttemptDate +
+            ", lockedBy='" + lockedBy + '\'' +
+            ", lockedUntil=" + lockedUntil +
+            "}";
+    }
+}
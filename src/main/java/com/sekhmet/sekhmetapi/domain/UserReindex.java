@@ -0,0 +1,102 @@
+package com.sekhmet.sekhmetapi.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * A reindex of the users in progress on one of the nodes, into a new index which then replaces the index behind the
+ * alias.
+ * <p>
+ * The changed users are not indexed by any node until the reindex completes, or stops renewing its lease.
+ */
+@Entity
+@Table(name = "skh_user_reindex")
+public class UserReindex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    @Size(max = 255)
+    @Id
+    @Column(length = 255)
+    private String alias;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "target_index", length = 255, nullable = false)
+    private String targetIndex;
+
+    @NotNull
+    @Column(name = "started_date", nullable = false)
+    private Instant startedDate;
+
+    @NotNull
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public void setTargetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public void setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(Instant lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserReindex)) {
+            return false;
+        }
+        return Objects.equals(alias, ((UserReindex) o).alias);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(alias);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "UserReindex{" +
+            "alias='" + alias + '\'' +
+            ", targetIndex='" + targetIndex + '\'' +
+            ", startedDate=" + startedDate +
+            ", lockedUntil=" + lockedUntil +
+            "}";
+    }
+}
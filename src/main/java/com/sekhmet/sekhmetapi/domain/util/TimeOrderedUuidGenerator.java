@@ -0,0 +1,72 @@
+package com.sekhmet.sekhmetapi.domain.util;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generates time-ordered UUIDs, laid out as the version 7 UUIDs of RFC 9562: a 48 bits millisecond timestamp, a 12 bits
+ * counter keeping the UUIDs of a millisecond ordered, and 62 random bits.
+ * <p>
+ * Unlike random UUIDs, successive ids are inserted at the end of the primary key index and of the foreign key indexes
+ * referencing it, keeping their pages dense and hot in the shared buffers. Use it with:
+ *
+ * <pre>
+ * &#64;GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+ * &#64;GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
+ * </pre>
+ *
+ * The ids keep the {@code uuid} column type, so switching an entity to this generator needs no Liquibase changeset: the
+ * existing random ids stay valid, and only the new rows are appended in order.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    public static final String NAME = "time-ordered-uuid";
+
+    public static final String STRATEGY = "com.sekhmet.sekhmetapi.domain.util.TimeOrderedUuidGenerator";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The timestamp and the counter of the last UUID, as {@code millis << 12 | counter}.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return next();
+    }
+
+    /**
+     * @return a new time-ordered UUID, greater than all the ones generated before by this JVM.
+     */
+    public static UUID next() {
+        return next(System.currentTimeMillis());
+    }
+
+    static UUID next(long currentTimeMillis) {
+        long candidate = currentTimeMillis << 12;
+        long current;
+        long next;
+        do {
+            current = LAST.get();
+            // the counter overflowing, or the clock going back, borrow from the next millisecond
+            next = Math.max(candidate, current + 1);
+        } while (!LAST.compareAndSet(current, next));
+
+        long mostSigBits = ((next >>> 12) << 16) | 0x7000L | (next & 0xFFFL);
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @param uuid a UUID generated by this generator.
+     * @return the millisecond timestamp of the UUID.
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Utility classes of the JPA domain objects.
+ */
+package com.sekhmet.sekhmetapi.domain.util;
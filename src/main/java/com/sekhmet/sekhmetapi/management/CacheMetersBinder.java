@@ -0,0 +1,125 @@
+package com.sekhmet.sekhmetapi.management;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the caches which are not covered by the Spring Boot cache metrics.
+ * <p>
+ * Spring Boot already binds the hits, misses, puts and evictions of every JCache cache, including the Hibernate
+ * second-level cache regions. This adds their average latencies, read from the JCache statistics MBeans, and the
+ * requests and puts of each region as seen by Hibernate, which are only counted while the
+ * {@link HibernateStatisticsEndpoint Hibernate statistics} are enabled.
+ */
+@Component
+public class CacheMetersBinder implements MeterBinder {
+
+    public static final String CACHE_LATENCY_METER_NAME = "cache.latency";
+    public static final String CACHE_LATENCY_METER_DESCRIPTION = "Average time of the cache operations.";
+
+    public static final String REGION_REQUESTS_METER_NAME = "hibernate.cache.region.requests";
+    public static final String REGION_REQUESTS_METER_DESCRIPTION = "Second-level cache lookups of Hibernate, by region.";
+
+    public static final String REGION_PUTS_METER_NAME = "hibernate.cache.region.puts";
+    public static final String REGION_PUTS_METER_DESCRIPTION = "Entries put by Hibernate in the second-level cache, by region.";
+
+    private final Logger log = LoggerFactory.getLogger(CacheMetersBinder.class);
+
+    private final javax.cache.CacheManager cacheManager;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheMetersBinder(javax.cache.CacheManager cacheManager, EntityManagerFactory entityManagerFactory) {
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            ObjectName objectName;
+            try {
+                objectName = statisticsObjectName(cacheName);
+            } catch (MalformedObjectNameException e) {
+                log.warn("No statistics for cache {}: {}", cacheName, e.getMessage());
+                continue;
+            }
+            latency(registry, mBeanServer, objectName, cacheName, "get", "AverageGetTime");
+            latency(registry, mBeanServer, objectName, cacheName, "put", "AveragePutTime");
+            latency(registry, mBeanServer, objectName, cacheName, "remove", "AverageRemoveTime");
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            FunctionCounter
+                .builder(REGION_REQUESTS_METER_NAME, statistics, s -> regionStatistics(s, region).getHitCount())
+                .description(REGION_REQUESTS_METER_DESCRIPTION)
+                .tags("region", region, "result", "hit")
+                .register(registry);
+            FunctionCounter
+                .builder(REGION_REQUESTS_METER_NAME, statistics, s -> regionStatistics(s, region).getMissCount())
+                .description(REGION_REQUESTS_METER_DESCRIPTION)
+                .tags("region", region, "result", "miss")
+                .register(registry);
+            FunctionCounter
+                .builder(REGION_PUTS_METER_NAME, statistics, s -> regionStatistics(s, region).getPutCount())
+                .description(REGION_PUTS_METER_DESCRIPTION)
+                .tags("region", region)
+                .register(registry);
+        }
+    }
+
+    private ObjectName statisticsObjectName(String cacheName) throws MalformedObjectNameException {
+        // as registered by the JCache provider once the statistics of the cache are enabled
+        return new ObjectName(
+            "javax.cache:type=CacheStatistics,CacheManager=" + sanitize(cacheManager.getURI().toString()) + ",Cache=" + sanitize(cacheName)
+        );
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll(",|:|=|\n", ".");
+    }
+
+    private static void latency(
+        MeterRegistry registry,
+        MBeanServer mBeanServer,
+        ObjectName objectName,
+        String cacheName,
+        String operation,
+        String attribute
+    ) {
+        TimeGauge
+            .builder(CACHE_LATENCY_METER_NAME, mBeanServer, TimeUnit.MICROSECONDS, server -> averageTime(server, objectName, attribute))
+            .description(CACHE_LATENCY_METER_DESCRIPTION)
+            .tags("cache", cacheName, "operation", operation)
+            .register(registry);
+    }
+
+    private static double averageTime(MBeanServer mBeanServer, ObjectName objectName, String attribute) {
+        try {
+            return ((Number) mBeanServer.getAttribute(objectName, attribute)).doubleValue();
+        } catch (JMException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static CacheRegionStatistics regionStatistics(Statistics statistics, String region) {
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+}
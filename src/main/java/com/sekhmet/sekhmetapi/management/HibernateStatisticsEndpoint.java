@@ -0,0 +1,66 @@
+package com.sekhmet.sekhmetapi.management;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint switching the Hibernate statistics on and off without a restart, as they slow down every session while
+ * enabled.
+ * <p>
+ * {@code POST /management/hibernatestatistics} with {@code {"enabled": true}} enables them, and the second-level
+ * cache regions are then counted by the {@link CacheMetersBinder} meters.
+ */
+@Component
+@Endpoint(id = "hibernatestatistics")
+public class HibernateStatisticsEndpoint {
+
+    private final Logger log = LoggerFactory.getLogger(HibernateStatisticsEndpoint.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Statistics statistics = statisticsOf();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("hits", regionStatistics.getHitCount());
+            counts.put("misses", regionStatistics.getMissCount());
+            counts.put("puts", regionStatistics.getPutCount());
+            regions.put(region, counts);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", statistics.isStatisticsEnabled());
+        body.put("regions", regions);
+        return body;
+    }
+
+    @WriteOperation
+    public Map<String, Object> enable(boolean enabled) {
+        Statistics statistics = statisticsOf();
+        if (statistics.isStatisticsEnabled() != enabled) {
+            log.info("{} the Hibernate statistics", enabled ? "Enabling" : "Disabling");
+            statistics.setStatisticsEnabled(enabled);
+        }
+        return statistics();
+    }
+
+    private Statistics statisticsOf() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -1,7 +1,14 @@
 package com.sekhmet.sekhmetapi.management;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,16 +20,102 @@ public class SecurityMetersService {
     public static final String INVALID_TOKENS_METER_BASE_UNIT = "errors";
     public static final String INVALID_TOKENS_METER_CAUSE_DIMENSION = "cause";
 
+    public static final String TOKEN_CACHE_METER_NAME = "security.authentication.token-cache";
+    public static final String TOKEN_CACHE_METER_DESCRIPTION = "Indicates lookups of already verified tokens in the token cache.";
+    public static final String TOKEN_CACHE_METER_BASE_UNIT = "lookups";
+    public static final String TOKEN_CACHE_METER_RESULT_DIMENSION = "result";
+
+    public static final String USER_LOOKUP_METER_NAME = "security.authentication.user-lookup";
+    public static final String USER_LOOKUP_METER_DESCRIPTION = "Indicates the time spent loading the users being authenticated.";
+    public static final String USER_LOOKUP_METER_LOOKUP_DIMENSION = "lookup";
+
+    public static final String TOKEN_CREATION_METER_NAME = "security.authentication.token-creation";
+    public static final String TOKEN_CREATION_METER_DESCRIPTION = "Indicates the time spent signing new tokens.";
+
+    public static final String TOKEN_SIZE_METER_NAME = "security.authentication.token-size";
+    public static final String TOKEN_SIZE_METER_DESCRIPTION = "Indicates the size of the new tokens.";
+    public static final String TOKEN_SIZE_METER_BASE_UNIT = "bytes";
+
+    public static final String TOKEN_PARSING_METER_NAME = "security.authentication.token-parsing";
+    public static final String TOKEN_PARSING_METER_DESCRIPTION = "Indicates the time spent verifying the tokens presented by the clients.";
+
+    public static final String TWILIO_TOKEN_MINTING_METER_NAME = "security.authentication.twilio-token-minting";
+    public static final String TWILIO_TOKEN_MINTING_METER_DESCRIPTION = "Indicates the time spent signing new Twilio access tokens.";
+
+    public static final String PHONE_VERIFICATION_METER_NAME = "security.authentication.phone-verification";
+    public static final String PHONE_VERIFICATION_METER_DESCRIPTION =
+        "Indicates the time spent logging users in with a phone verification code, end to end.";
+
+    public static final String OUTCOME_DIMENSION = "outcome";
+
+    private final MeterRegistry registry;
+
     private final Counter tokenInvalidSignatureCounter;
     private final Counter tokenExpiredCounter;
     private final Counter tokenUnsupportedCounter;
     private final Counter tokenMalformedCounter;
+    private final Counter tokenRevokedCounter;
+
+    private final Counter tokenCacheHitCounter;
+    private final Counter tokenCacheMissCounter;
+
+    private final DistributionSummary tokenSizeSummary;
+
+    private final Map<String, Timer> userLookupByLoginTimers;
+    private final Map<String, Timer> userLookupByEmailTimers;
+    private final Timer tokenCreationTimer;
+    private final Map<String, Timer> tokenParsingTimers;
+    private final Map<String, Timer> twilioTokenMintingTimers;
+    private final Map<String, Timer> phoneVerificationTimers;
 
     public SecurityMetersService(MeterRegistry registry) {
+        this.registry = registry;
+
         this.tokenInvalidSignatureCounter = invalidTokensCounterForCauseBuilder("invalid-signature").register(registry);
         this.tokenExpiredCounter = invalidTokensCounterForCauseBuilder("expired").register(registry);
         this.tokenUnsupportedCounter = invalidTokensCounterForCauseBuilder("unsupported").register(registry);
         this.tokenMalformedCounter = invalidTokensCounterForCauseBuilder("malformed").register(registry);
+        this.tokenRevokedCounter = invalidTokensCounterForCauseBuilder("revoked").register(registry);
+
+        this.tokenCacheHitCounter = tokenCacheCounterForResultBuilder("hit").register(registry);
+        this.tokenCacheMissCounter = tokenCacheCounterForResultBuilder("miss").register(registry);
+
+        this.tokenSizeSummary =
+            DistributionSummary
+                .builder(TOKEN_SIZE_METER_NAME)
+                .baseUnit(TOKEN_SIZE_METER_BASE_UNIT)
+                .description(TOKEN_SIZE_METER_DESCRIPTION)
+                .register(registry);
+
+        this.userLookupByLoginTimers = userLookupTimersForLookup("login");
+        this.userLookupByEmailTimers = userLookupTimersForLookup("email");
+        this.tokenCreationTimer = timerBuilder(TOKEN_CREATION_METER_NAME, TOKEN_CREATION_METER_DESCRIPTION, "success").register(registry);
+        this.tokenParsingTimers =
+            timersByOutcome(
+                outcome -> timerBuilder(TOKEN_PARSING_METER_NAME, TOKEN_PARSING_METER_DESCRIPTION, outcome),
+                "valid",
+                "expired",
+                "unsupported",
+                "malformed",
+                "invalid-signature",
+                "illegal-argument",
+                "revoked"
+            );
+        this.twilioTokenMintingTimers =
+            timersByOutcome(
+                outcome -> timerBuilder(TWILIO_TOKEN_MINTING_METER_NAME, TWILIO_TOKEN_MINTING_METER_DESCRIPTION, outcome),
+                "success",
+                "error"
+            );
+        this.phoneVerificationTimers =
+            timersByOutcome(
+                outcome -> timerBuilder(PHONE_VERIFICATION_METER_NAME, PHONE_VERIFICATION_METER_DESCRIPTION, outcome),
+                "approved",
+                "pending",
+                "canceled",
+                "rate-limited",
+                "error"
+            );
     }
 
     private Counter.Builder invalidTokensCounterForCauseBuilder(String cause) {
@@ -33,6 +126,37 @@ public class SecurityMetersService {
             .tag(INVALID_TOKENS_METER_CAUSE_DIMENSION, cause);
     }
 
+    private Counter.Builder tokenCacheCounterForResultBuilder(String result) {
+        return Counter
+            .builder(TOKEN_CACHE_METER_NAME)
+            .baseUnit(TOKEN_CACHE_METER_BASE_UNIT)
+            .description(TOKEN_CACHE_METER_DESCRIPTION)
+            .tag(TOKEN_CACHE_METER_RESULT_DIMENSION, result);
+    }
+
+    private Map<String, Timer> userLookupTimersForLookup(String lookup) {
+        return timersByOutcome(
+            outcome ->
+                timerBuilder(USER_LOOKUP_METER_NAME, USER_LOOKUP_METER_DESCRIPTION, outcome)
+                    .tag(USER_LOOKUP_METER_LOOKUP_DIMENSION, lookup),
+            "cached",
+            "found",
+            "not-found",
+            "not-activated"
+        );
+    }
+
+    private Timer.Builder timerBuilder(String name, String description, String outcome) {
+        return Timer.builder(name).description(description).tag(OUTCOME_DIMENSION, outcome).publishPercentileHistogram();
+    }
+
+    private Map<String, Timer> timersByOutcome(Function<String, Timer.Builder> builder, String... outcomes) {
+        // registered once, as looking a timer up again on every record is costly on the request path
+        return Stream
+            .of(outcomes)
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), outcome -> builder.apply(outcome).register(registry)));
+    }
+
     public void trackTokenInvalidSignature() {
         this.tokenInvalidSignatureCounter.increment();
     }
@@ -48,4 +172,75 @@ public class SecurityMetersService {
     public void trackTokenMalformed() {
         this.tokenMalformedCounter.increment();
     }
+
+    public void trackTokenRevoked() {
+        this.tokenRevokedCounter.increment();
+    }
+
+    public void trackTokenCacheHit() {
+        this.tokenCacheHitCounter.increment();
+    }
+
+    public void trackTokenCacheMiss() {
+        this.tokenCacheMissCounter.increment();
+    }
+
+    /**
+     * Record the loading of a user by {@code DomainUserDetailsService}.
+     *
+     * @param lookup {@code login} or {@code email}.
+     * @param outcome {@code cached}, {@code found}, {@code not-found} or {@code not-activated}.
+     * @param durationNanos the duration of the lookup.
+     */
+    public void recordUserLookup(String lookup, String outcome, long durationNanos) {
+        Map<String, Timer> timers = "email".equals(lookup) ? userLookupByEmailTimers : userLookupByLoginTimers;
+        timer(timers, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTokenCreation(long durationNanos, int tokenLength) {
+        tokenCreationTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        tokenSizeSummary.record(tokenLength);
+    }
+
+    /**
+     * Record the verification of a token.
+     *
+     * @param outcome {@code valid}, or the cause of the rejection.
+     * @param durationNanos the duration of the verification.
+     */
+    public void recordTokenParsing(String outcome, long durationNanos) {
+        timer(tokenParsingTimers, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTwilioTokenMinting(String outcome, long durationNanos) {
+        timer(twilioTokenMintingTimers, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Start timing a login with a phone verification code.
+     *
+     * @return the sample to stop with {@link #stopPhoneVerification(Timer.Sample, String)} once the request is handled.
+     */
+    public Timer.Sample startPhoneVerification() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Record a login with a phone verification code.
+     *
+     * @param sample the sample started with the request.
+     * @param outcome {@code approved}, {@code pending} (wrong code), {@code canceled}, {@code rate-limited} or
+     * {@code error}.
+     */
+    public void stopPhoneVerification(Timer.Sample sample, String outcome) {
+        sample.stop(timer(phoneVerificationTimers, outcome));
+    }
+
+    private Timer timer(Map<String, Timer> timers, String outcome) {
+        Timer timer = timers.get(outcome);
+        if (timer == null) {
+            throw new IllegalArgumentException("Unknown outcome " + outcome);
+        }
+        return timer;
+    }
 }
@@ -0,0 +1,13 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import com.sekhmet.sekhmetapi.domain.TokenEpoch;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Spring Data JPA repository for the {@link TokenEpoch} entity.
+ */
+public interface TokenEpochRepository extends JpaRepository<TokenEpoch, String> {
+    List<TokenEpoch> findAllByRevokedDateAfter(Instant revokedDate);
+}
@@ -0,0 +1,53 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import com.sekhmet.sekhmetapi.domain.UserIndexTask;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Spring Data JPA repository for the {@link UserIndexTask} entity.
+ */
+public interface UserIndexTaskRepository extends JpaRepository<UserIndexTask, Long> {
+    // due, not claimed, and no reindex holding back the indexing
+    String CLAIMABLE =
+        "t.nextAttemptDate <= :now and (t.lockedUntil is null or t.lockedUntil < :now)" +
+        " and t.userId not in (select o.userId from UserIndexTask o where o.lockedUntil >= :now)" +
+        " and not exists (select r.alias from UserReindex r where r.lockedUntil >= :now)";
+
+    /**
+     * @return the users with tasks due, none of whose tasks is claimed by a node, by order of their first task; none while
+     * a {@link com.sekhmet.sekhmetapi.domain.UserReindex} is in progress.
+     */
+    @Query("select t.userId from UserIndexTask t where " + CLAIMABLE + " group by t.userId order by min(t.id)")
+    List<UUID> findAllUserIdsToIndex(@Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Claim the tasks due of the users, unless another node claimed tasks of the same user or a reindex started
+     * meanwhile: concurrent claims of a task wait for each other on its row, and the one committing last leaves it.
+     *
+     * @return the number of tasks claimed.
+     */
+    @Modifying
+    @Query(
+        "update UserIndexTask t set t.lockedBy = :lockedBy, t.lockedUntil = :lockedUntil where t.userId in :userIds and " +
+        CLAIMABLE
+    )
+    int claim(
+        @Param("userIds") Collection<UUID> userIds,
+        @Param("now") Instant now,
+        @Param("lockedBy") String lockedBy,
+        @Param("lockedUntil") Instant lockedUntil
+    );
+
+    List<UserIndexTask> findAllByLockedBy(String lockedBy);
+
+    Optional<UserIndexTask> findFirstByOrderByEnqueuedDateAsc();
+}
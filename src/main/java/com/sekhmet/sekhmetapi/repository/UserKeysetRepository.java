@@ -0,0 +1,72 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.service.dto.UserDTO;
+import java.util.List;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Keyset pagination of the {@link User} entities, implemented by {@link UserKeysetRepositoryImpl}.
+ * <p>
+ * Instead of skipping the users of the previous pages, a page starts right after the position of the last user of the
+ * previous one, so that all the pages take the same time to read and no count is needed. The nulls of a sort property are
+ * sorted last, whatever its direction.
+ */
+public interface UserKeysetRepository {
+    /**
+     * Find the users following a position, in the order of the sort.
+     *
+     * @param sort the sort, whose last property must be unique.
+     * @param after the position to start after, as returned by {@link #positionOf(User, Sort)}, or {@code null} to start
+     *              from the first user.
+     * @param activatedOnly whether to only find the activated users.
+     * @param limit the maximum number of users to find.
+     * @return the users.
+     */
+    List<User> findAllAfter(Sort sort, List<Object> after, boolean activatedOnly, int limit);
+
+    /**
+     * Find the activated users following a position, in the order of the sort, selecting only their public columns and
+     * their sort properties: no entity is loaded, nor their authorities.
+     *
+     * @param sort the sort, whose last property must be unique.
+     * @param after the position to start after, or {@code null} to start from the first user.
+     * @param limit the maximum number of users to find.
+     * @return the users, with their positions.
+     */
+    List<Positioned<UserDTO>> findAllPublicUsersAfter(Sort sort, List<Object> after, int limit);
+
+    /**
+     * Get the position of a user in the order of a sort.
+     *
+     * @param user the user.
+     * @param sort the sort.
+     * @return the values of the sort properties of the user.
+     */
+    List<Object> positionOf(User user, Sort sort);
+
+    /**
+     * A user found after a position, with its own position, from which the next users can be found.
+     *
+     * @param <T> the type of the user.
+     */
+    final class Positioned<T> {
+
+        private final T value;
+
+        private final List<Object> position;
+
+        public Positioned(T value, List<Object> position) {
+            this.value = value;
+            this.position = position;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public List<Object> getPosition() {
+            return position;
+        }
+    }
+}
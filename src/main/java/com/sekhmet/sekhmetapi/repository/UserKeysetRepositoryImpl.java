@@ -0,0 +1,144 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.service.dto.UserDTO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+
+/**
+ * JPQL implementation of the {@link UserKeysetRepository}.
+ * <p>
+ * The sort properties are compared as they are, so that the {@code (column, id)} indexes of the sort columns can serve
+ * the queries. Nulls are sorted last whatever the direction, as databases don't agree on where they are sorted by
+ * default, and are matched with {@code is null} as they can't be compared to a position.
+ */
+public class UserKeysetRepositoryImpl implements UserKeysetRepository {
+
+    private static final Set<String> NULLABLE_PROPERTIES = Set.of(
+        "firstName",
+        "lastName",
+        "email",
+        "langKey",
+        "createdDate",
+        "lastModifiedBy",
+        "lastModifiedDate"
+    );
+
+    private static final String PUBLIC_COLUMNS = "u.id, u.login, u.firstName, u.lastName, u.email, u.imageUrl, u.activated, u.phoneNumber";
+
+    private static final int PUBLIC_COLUMN_COUNT = 8;
+
+    private final EntityManager entityManager;
+
+    public UserKeysetRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<User> findAllAfter(Sort sort, List<Object> after, boolean activatedOnly, int limit) {
+        TypedQuery<User> query = entityManager.createQuery("select u" + fromAfter(sort, after, activatedOnly), User.class);
+        return bind(query, after).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Positioned<UserDTO>> findAllPublicUsersAfter(Sort sort, List<Object> after, int limit) {
+        String keys = sort.stream().map(order -> ", u." + order.getProperty()).collect(Collectors.joining());
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "select " + PUBLIC_COLUMNS + keys + fromAfter(sort, after, true),
+            Object[].class
+        );
+        List<Positioned<UserDTO>> users = new ArrayList<>();
+        for (Object[] row : bind(query, after).setMaxResults(limit).getResultList()) {
+            UserDTO user = new UserDTO(
+                (UUID) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5],
+                (Boolean) row[6],
+                (String) row[7]
+            );
+            users.add(new Positioned<>(user, Arrays.asList(row).subList(PUBLIC_COLUMN_COUNT, row.length)));
+        }
+        return users;
+    }
+
+    @Override
+    public List<Object> positionOf(User user, Sort sort) {
+        BeanWrapperImpl properties = new BeanWrapperImpl(user);
+        List<Object> position = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            position.add(properties.getPropertyValue(order.getProperty()));
+        }
+        return position;
+    }
+
+    /**
+     * Build the query from its select clause on: {@code from User u where (k1 > :p0) or (k1 = :p0 and k2 > :p1) or ...
+     * order by k1, k2, ...}, with {@code <} for the descending properties.
+     */
+    private String fromAfter(Sort sort, List<Object> after, boolean activatedOnly) {
+        String orderBy = sort.stream().map(this::orderBy).collect(Collectors.joining(", "));
+        List<String> predicates = new ArrayList<>();
+        if (activatedOnly) {
+            predicates.add("u.activated = true");
+        }
+        if (after != null) {
+            predicates.add(after(sort, after));
+        }
+        String where = predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+        return " from User u" + where + " order by " + orderBy;
+    }
+
+    private String orderBy(Sort.Order order) {
+        // also rejects the unknown properties, which are written in the query
+        entityManager.getMetamodel().entity(User.class).getAttribute(order.getProperty());
+        String key = "u." + order.getProperty() + (order.isAscending() ? " asc" : " desc");
+        return NULLABLE_PROPERTIES.contains(order.getProperty()) ? key + " nulls last" : key;
+    }
+
+    /**
+     * The users after a position are those after its value of a property, or equal to it and after its values of the
+     * following ones. Nulls being last, the nulls follow any value, and nothing follows a null but the other nulls.
+     */
+    private static String after(Sort sort, List<Object> position) {
+        List<String> alternatives = new ArrayList<>();
+        List<String> equalities = new ArrayList<>();
+        int i = 0;
+        for (Sort.Order order : sort) {
+            String key = "u." + order.getProperty();
+            String parameter = ":p" + i;
+            boolean nullable = NULLABLE_PROPERTIES.contains(order.getProperty());
+            if (position.get(i++) == null) {
+                equalities.add(key + " is null");
+                continue;
+            }
+            String next = key + (order.isAscending() ? " > " : " < ") + parameter;
+            List<String> alternative = new ArrayList<>(equalities);
+            alternative.add(nullable ? "(" + next + " or " + key + " is null)" : next);
+            alternatives.add("(" + String.join(" and ", alternative) + ")");
+            equalities.add(key + " = " + parameter);
+        }
+        return alternatives.isEmpty() ? "1 = 0" : "(" + String.join(" or ", alternatives) + ")";
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, List<Object> position) {
+        if (position != null) {
+            for (int i = 0; i < position.size(); i++) {
+                if (position.get(i) != null) {
+                    query.setParameter("p" + i, position.get(i));
+                }
+            }
+        }
+        return query;
+    }
+}
@@ -0,0 +1,34 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import com.sekhmet.sekhmetapi.domain.UserReindex;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Spring Data JPA repository for the {@link UserReindex} entity.
+ */
+public interface UserReindexRepository extends JpaRepository<UserReindex, String> {
+    /**
+     * Extend the lease of the reindex, unless it expired or another node took it over.
+     *
+     * @return the number of reindexes renewed, 0 or 1.
+     */
+    @Modifying
+    @Query(
+        "update UserReindex r set r.lockedUntil = :lockedUntil" +
+        " where r.alias = :alias and r.targetIndex = :targetIndex and r.lockedUntil >= :now"
+    )
+    int renew(
+        @Param("alias") String alias,
+        @Param("targetIndex") String targetIndex,
+        @Param("now") Instant now,
+        @Param("lockedUntil") Instant lockedUntil
+    );
+
+    @Modifying
+    @Query("delete from UserReindex r where r.alias = :alias and r.targetIndex = :targetIndex")
+    int release(@Param("alias") String alias, @Param("targetIndex") String targetIndex);
+}
@@ -1,11 +1,12 @@
 package com.sekhmet.sekhmetapi.repository;
 
 import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.service.dto.UserDTO;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -18,18 +19,33 @@ import org.springframework.stereotype.Repository;
  * Spring Data JPA repository for the {@link User} entity.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserKeysetRepository {
     String USERS_BY_LOGIN_CACHE = "usersByLogin";
     String USERS_BY_ID_CACHE = "usersById";
 
     String USERS_BY_EMAIL_CACHE = "usersByEmail";
 
+    String USERS_BY_PHONE_NUMBER_CACHE = "usersByPhoneNumber";
+
+    String PUBLIC_USER_PROJECTION =
+        "select new com.sekhmet.sekhmetapi.service.dto.UserDTO(" +
+        "u.id, u.login, u.firstName, u.lastName, u.email, u.imageUrl, u.activated, u.phoneNumber)";
+
+    // on Postgres, the lower(column) like '%search%' conditions are served by the pg_trgm indexes of the columns
+    String PUBLIC_USER_SEARCH =
+        " from User u" +
+        " where (LOWER(u.firstName) like %:search% or LOWER(u.lastName) like %:search% or LOWER(u.email) like %:search% or LOWER(u.phoneNumber) like %:search%)" +
+        " and u.activated=true";
+
     Optional<User> findOneByActivationKey(String activationKey);
 
     Optional<User> findOneByPhoneNumber(String phoneNumber);
 
     List<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
 
+    @Query("select u.id from User u where u.lastModifiedDate >= ?1")
+    List<UUID> findAllIdsByLastModifiedDateGreaterThanEqual(Instant dateTime);
+
     Optional<User> findOneByResetKey(String resetKey);
 
     Optional<User> findOneByEmailIgnoreCase(String email);
@@ -37,24 +53,27 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findOneByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_LOGIN_CACHE)
     Optional<User> findOneWithAuthoritiesByLogin(String login);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_ID_CACHE)
-    Optional<User> findById(UUID id);
+    Optional<User> findOneWithAuthoritiesById(UUID id);
+
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByIdIn(Collection<UUID> ids);
 
     @EntityGraph(attributePaths = "authorities")
-    @Cacheable(cacheNames = USERS_BY_EMAIL_CACHE)
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
-    Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> findOneWithAuthoritiesByPhoneNumber(String phoneNumber);
+
+    /**
+     * Find the activated users, selecting only their public columns: no entity is loaded, nor their authorities.
+     */
+    @Query(value = PUBLIC_USER_PROJECTION + " from User u where u.activated=true", countQuery = "select count(u) from User u where u.activated=true")
+    Page<UserDTO> findAllPublicUsers(Pageable pageable);
 
     // find all using uses @Query where firstname ignorecase like '%'+firstname+'%' or lastname like '%'+lastname+'%' or email like '%'+email+'%' or phone like '%'+phone+'%'
-    @Query(
-        "select u from User u" +
-        " where (LOWER(u.firstName) like %:search% or LOWER(u.lastName) like %:search% or LOWER(u.email) like %:search% or LOWER(u.phoneNumber) like %:search%)" +
-        " and u.activated=true"
-    )
-    Page<User> findAllByFirstNameOrLastNameOrEmailOrPhone(@Param("search") String searchLowerCase, Pageable pageable);
+    @Query(value = PUBLIC_USER_PROJECTION + PUBLIC_USER_SEARCH, countQuery = "select count(u)" + PUBLIC_USER_SEARCH)
+    Page<UserDTO> findAllPublicUsersBySearch(@Param("search") String searchLowerCase, Pageable pageable);
 }
@@ -1,13 +1,29 @@
 package com.sekhmet.sekhmetapi.repository.search;
 
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.multiMatchQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 
 import com.sekhmet.sekhmetapi.domain.User;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
+import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 /**
@@ -16,11 +32,49 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 public interface UserSearchRepository extends ElasticsearchRepository<User, UUID>, UserSearchRepositoryInternal {}
 
 interface UserSearchRepositoryInternal {
-    Stream<User> search(String query);
+    /**
+     * Search the users matching a query string, reading only the public fields of their documents.
+     *
+     * @param query the query string.
+     * @param pageable the pagination information, whose offset must be 0 when searching after a hit.
+     * @param searchAfter the sort values of the hit to search after, or {@code null} to start from the first one.
+     * @param trackTotalHits whether to count all the hits, instead of stopping at the page.
+     * @return the hits.
+     */
+    SearchHits<User> search(String query, Pageable pageable, List<Object> searchAfter, boolean trackTotalHits);
+
+    /**
+     * Search the activated users as they are typed: by prefix of their login and names, tolerating typos, or by prefix
+     * of their email and phone number.
+     *
+     * @param text the text typed.
+     * @param pageable the pagination information.
+     * @return the users found.
+     */
+    Page<User> searchPublicUsers(String text, Pageable pageable);
 }
 
 class UserSearchRepositoryInternalImpl implements UserSearchRepositoryInternal {
 
+    /**
+     * The fields of the {@link com.sekhmet.sekhmetapi.service.dto.UserDTO}.
+     */
+    private static final String[] PUBLIC_FIELDS = {
+        "id",
+        "login",
+        "firstName",
+        "lastName",
+        "email",
+        "imageUrl",
+        "activated",
+        "langKey",
+        "phoneNumber"
+    };
+
+    private static final String[] FOLDED_NAMES = { "login.folded", "firstName.folded", "lastName.folded" };
+
+    private static final String[] AUTOCOMPLETE_NAMES = { "login.autocomplete", "firstName.autocomplete", "lastName.autocomplete" };
+
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
     UserSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate) {
@@ -28,8 +82,35 @@ class UserSearchRepositoryInternalImpl implements UserSearchRepositoryInternal {
     }
 
     @Override
-    public Stream<User> search(String query) {
-        NativeSearchQuery nativeSearchQuery = new NativeSearchQuery(queryStringQuery(query));
-        return elasticsearchTemplate.search(nativeSearchQuery, User.class).map(SearchHit::getContent).stream();
+    public SearchHits<User> search(String query, Pageable pageable, List<Object> searchAfter, boolean trackTotalHits) {
+        NativeSearchQuery nativeSearchQuery = new NativeSearchQueryBuilder()
+            .withQuery(queryStringQuery(query))
+            .withPageable(pageable)
+            .withSourceFilter(new FetchSourceFilter(PUBLIC_FIELDS, null))
+            .build();
+        nativeSearchQuery.setTrackTotalHits(trackTotalHits);
+        if (searchAfter != null) {
+            nativeSearchQuery.setSearchAfter(searchAfter);
+        }
+        return elasticsearchTemplate.search(nativeSearchQuery, User.class);
+    }
+
+    @Override
+    public Page<User> searchPublicUsers(String text, Pageable pageable) {
+        NativeSearchQuery query = new NativeSearchQueryBuilder().withQuery(publicUsersQuery(text)).withPageable(pageable).build();
+        SearchHits<User> hits = elasticsearchTemplate.search(query, User.class);
+        return new PageImpl<>(hits.stream().map(SearchHit::getContent).collect(Collectors.toList()), pageable, hits.getTotalHits());
+    }
+
+    static QueryBuilder publicUsersQuery(String text) {
+        return boolQuery()
+            // the words typed so far, the last one being a prefix, rank first
+            .should(multiMatchQuery(text, FOLDED_NAMES).type(MultiMatchQueryBuilder.Type.PHRASE_PREFIX).boost(2))
+            // then the edge n-grams of all the words, with a typo or two
+            .should(multiMatchQuery(text, AUTOCOMPLETE_NAMES).fuzziness(Fuzziness.AUTO).prefixLength(1).operator(Operator.AND))
+            .should(prefixQuery("email", text.toLowerCase(Locale.ENGLISH)))
+            .should(prefixQuery("phoneNumber", text))
+            .minimumShouldMatch(1)
+            .filter(termQuery("activated", true));
     }
 }
@@ -0,0 +1,167 @@
+package com.sekhmet.sekhmetapi.security;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} running the hashing work of its delegate on a dedicated, size-bounded executor.
+ * <p>
+ * The number of threads caps the CPU that password hashing can take, whatever the number of concurrent logins. When
+ * the queue is full, or when a hash waits for too long, a {@link PasswordHashingRejectedException} is thrown instead of
+ * piling up work on the request threads.
+ * <p>
+ * A hash which timed out is not stopped: BCrypt ignores interrupts, so it keeps its thread until it completes, and the
+ * hashes queued behind it wait as long. The timeout should therefore be well above the time of a hash, and the queue
+ * no longer than the hashes the threads complete within the timeout.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    public static final String PASSWORD_HASHING_METER_PREFIX = "security.password-hashing";
+
+    private final Logger log = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeoutSeconds;
+
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchTimer;
+
+    private final Timer mismatchTimer;
+
+    private final Counter queueFullCounter;
+
+    private final Counter timeoutCounter;
+
+    public BoundedPasswordEncoder(
+        PasswordEncoder delegate,
+        ApplicationProperties.SecurityProperties.PasswordHashing passwordHashing,
+        MeterRegistry registry
+    ) {
+        this.delegate = delegate;
+        this.timeoutSeconds = passwordHashing.getTimeoutSeconds();
+        this.retryAfterSeconds = passwordHashing.getRetryAfterSeconds();
+        int threads = Math.max(1, passwordHashing.getThreads());
+        this.executor =
+            new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, passwordHashing.getQueueCapacity())),
+                new CustomizableThreadFactory("sekhmet-api-password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+        log.debug("Creating password hashing executor with {} threads", threads);
+
+        Gauge
+            .builder(PASSWORD_HASHING_METER_PREFIX + ".queue", executor, e -> e.getQueue().size())
+            .description("Indicates the number of password hashes waiting for a thread.")
+            .baseUnit("tasks")
+            .register(registry);
+        Gauge
+            .builder(PASSWORD_HASHING_METER_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Indicates the number of password hashes being computed.")
+            .baseUnit("threads")
+            .register(registry);
+        this.encodeTimer = durationTimerForOperation("encode", "success").register(registry);
+        this.matchTimer = durationTimerForOperation("matches", "match").register(registry);
+        this.mismatchTimer = durationTimerForOperation("matches", "mismatch").register(registry);
+        this.queueFullCounter = rejectedCounterForCause("queue-full").register(registry);
+        this.timeoutCounter = rejectedCounterForCause("timeout").register(registry);
+    }
+
+    private Timer.Builder durationTimerForOperation(String operation, String outcome) {
+        return Timer
+            .builder(PASSWORD_HASHING_METER_PREFIX + ".duration")
+            .description("Indicates the time spent hashing passwords.")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram();
+    }
+
+    private Counter.Builder rejectedCounterForCause(String cause) {
+        return Counter
+            .builder(PASSWORD_HASHING_METER_PREFIX + ".rejected")
+            .description("Indicates the number of password hashes rejected because the executor is saturated.")
+            .baseUnit("errors")
+            .tag("cause", cause);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> {
+            long start = System.nanoTime();
+            boolean matches = delegate.matches(rawPassword, encodedPassword);
+            (matches ? matchTimer : mismatchTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return matches;
+        });
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T execute(Callable<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            queueFullCounter.increment();
+            throw new PasswordHashingRejectedException("Too many concurrent password hashes", retryAfterSeconds, e);
+        }
+        try {
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // dequeues the hash if it is still waiting, but a running hash ignores the interrupt and keeps its thread
+            future.cancel(true);
+            timeoutCounter.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out", retryAfterSeconds, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing", retryAfterSeconds, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
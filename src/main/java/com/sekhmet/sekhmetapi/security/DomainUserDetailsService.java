@@ -1,12 +1,15 @@
 package com.sekhmet.sekhmetapi.security;
 
 import com.sekhmet.sekhmetapi.domain.User;
-import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import com.sekhmet.sekhmetapi.service.cache.UserCache;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,16 +20,48 @@ import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Authenticate a user from the database.
+ * <p>
+ * The resolved {@link UserDetails} are cached by normalized login and email, and evicted with the other user caches.
  */
 @Component("userDetailsService")
 public class DomainUserDetailsService implements UserDetailsService {
 
+    public static final String USER_DETAILS_CACHE = "userDetails";
+
+    private static final EmailValidator EMAIL_VALIDATOR = new EmailValidator();
+
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
-    private final UserRepository userRepository;
+    private final SecurityMetersService securityMetersService;
+
+    private final CacheManager cacheManager;
+
+    private final UserCache userCache;
+
+    public DomainUserDetailsService(
+        SecurityMetersService securityMetersService,
+        CacheManager cacheManager,
+        UserCache userCache
+    ) {
+        this.securityMetersService = securityMetersService;
+        this.cacheManager = cacheManager;
+        this.userCache = userCache;
+    }
 
-    public DomainUserDetailsService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    /**
+     * @param login a login.
+     * @return the key of the user in the {@link #USER_DETAILS_CACHE}.
+     */
+    public static String loginCacheKey(String login) {
+        return "login:" + login.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param email an email.
+     * @return the key of the user in the {@link #USER_DETAILS_CACHE}.
+     */
+    public static String emailCacheKey(String email) {
+        return "email:" + email.toLowerCase(Locale.ENGLISH);
     }
 
     @Override
@@ -34,15 +69,42 @@ public class DomainUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
 
-        if (new EmailValidator().isValid(login, null)) {
-            return userRepository
-                .findOneWithAuthoritiesByEmailIgnoreCase(login)
-                .map(user -> createSpringSecurityUser(login, user))
-                .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"));
+        long start = System.nanoTime();
+        boolean byEmail = EMAIL_VALIDATOR.isValid(login, null);
+        String outcome = "not-found";
+        try {
+            String cacheKey = byEmail ? emailCacheKey(login) : loginCacheKey(login);
+            Cache cache = cacheManager.getCache(USER_DETAILS_CACHE);
+            UserDetails cached = cache != null ? cache.get(cacheKey, UserDetails.class) : null;
+            if (cached != null) {
+                outcome = "cached";
+                // a copy, as the authentication manager erases the password of the returned instance
+                return org.springframework.security.core.userdetails.User.withUserDetails(cached).build();
+            }
+            UserDetails userDetails = byEmail ? loadUserByEmail(login) : loadUserByLogin(login);
+            if (cache != null) {
+                cache.put(cacheKey, userDetails);
+            }
+            outcome = "found";
+            return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).build();
+        } catch (UserNotActivatedException e) {
+            outcome = "not-activated";
+            throw e;
+        } finally {
+            securityMetersService.recordUserLookup(byEmail ? "email" : "login", outcome, System.nanoTime() - start);
         }
+    }
+
+    private UserDetails loadUserByEmail(String email) {
+        return userCache
+            .findOneWithAuthoritiesByEmail(email)
+            .map(user -> createSpringSecurityUser(email, user))
+            .orElseThrow(() -> new UsernameNotFoundException("User with email " + email + " was not found in the database"));
+    }
 
+    private UserDetails loadUserByLogin(String login) {
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return userRepository
+        return userCache
             .findOneWithAuthoritiesByLogin(lowercaseLogin)
             .map(user -> createSpringSecurityUser(lowercaseLogin, user))
             .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
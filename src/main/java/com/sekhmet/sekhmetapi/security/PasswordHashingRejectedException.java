@@ -0,0 +1,20 @@
+package com.sekhmet.sekhmetapi.security;
+
+/**
+ * This exception is thrown when the password hashing executor is saturated, so that the client retries later.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(String message, long retryAfterSeconds, Throwable t) {
+        super(message, t);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
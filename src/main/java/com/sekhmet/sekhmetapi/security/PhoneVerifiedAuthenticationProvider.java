@@ -0,0 +1,46 @@
+package com.sekhmet.sekhmetapi.security;
+
+import com.sekhmet.sekhmetapi.domain.User;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticate a user whose phone number has already been verified.
+ * <p>
+ * Unlike the {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider}, the user is neither
+ * reloaded nor checked against a password hash: the phone verification is the proof of identity.
+ */
+@Component
+public class PhoneVerifiedAuthenticationProvider implements AuthenticationProvider {
+
+    private final Logger log = LoggerFactory.getLogger(PhoneVerifiedAuthenticationProvider.class);
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        User user = ((PhoneVerifiedAuthenticationToken) authentication).getUser();
+        log.debug("Authenticating verified phone number of {}", user.getLogin());
+        if (!user.isActivated()) {
+            throw new UserNotActivatedException("User " + user.getLogin() + " was not activated");
+        }
+        List<GrantedAuthority> grantedAuthorities = user
+            .getAuthorities()
+            .stream()
+            .map(authority -> new SimpleGrantedAuthority(authority.getName()))
+            .collect(Collectors.toList());
+        return PhoneVerifiedAuthenticationToken.authenticated(
+            new org.springframework.security.core.userdetails.User(user.getLogin(), "", grantedAuthorities)
+        );
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return PhoneVerifiedAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
@@ -0,0 +1,70 @@
+package com.sekhmet.sekhmetapi.security;
+
+import com.sekhmet.sekhmetapi.domain.User;
+import java.util.Collection;
+import java.util.Collections;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Authentication request for a {@link User} whose phone number has already been verified, for instance by an SMS code.
+ * <p>
+ * Such a request carries no password: it must only be built once the phone number has been checked.
+ */
+public class PhoneVerifiedAuthenticationToken extends AbstractAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient User user;
+
+    private final UserDetails principal;
+
+    private PhoneVerifiedAuthenticationToken(User user) {
+        super(Collections.emptyList());
+        this.user = user;
+        this.principal = null;
+        setAuthenticated(false);
+    }
+
+    private PhoneVerifiedAuthenticationToken(UserDetails principal, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.user = null;
+        this.principal = principal;
+        super.setAuthenticated(true);
+    }
+
+    /**
+     * @param user the user owning the verified phone number.
+     * @return an authentication request, to be handled by the {@link PhoneVerifiedAuthenticationProvider}.
+     */
+    public static PhoneVerifiedAuthenticationToken unauthenticated(User user) {
+        return new PhoneVerifiedAuthenticationToken(user);
+    }
+
+    static PhoneVerifiedAuthenticationToken authenticated(UserDetails principal) {
+        return new PhoneVerifiedAuthenticationToken(principal, principal.getAuthorities());
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return "";
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return principal != null ? principal : user.getLogin();
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (authenticated) {
+            throw new IllegalArgumentException("Use PhoneVerifiedAuthenticationToken.authenticated instead");
+        }
+        super.setAuthenticated(false);
+    }
+}
@@ -24,8 +24,15 @@ public class JWTFilter extends GenericFilterBean {
 
     private final TokenProvider tokenProvider;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
     public JWTFilter(TokenProvider tokenProvider) {
+        this(tokenProvider, null);
+    }
+
+    public JWTFilter(TokenProvider tokenProvider, VerifiedTokenCache verifiedTokenCache) {
         this.tokenProvider = tokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -33,13 +40,33 @@ public class JWTFilter extends GenericFilterBean {
         throws IOException, ServletException {
         HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
         String jwt = resolveToken(httpServletRequest);
-        if (StringUtils.hasText(jwt) && this.tokenProvider.validateToken(jwt)) {
-            Authentication authentication = this.tokenProvider.getAuthentication(jwt);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (StringUtils.hasText(jwt)) {
+            Authentication authentication = resolveAuthentication(jwt);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
         filterChain.doFilter(servletRequest, servletResponse);
     }
 
+    private Authentication resolveAuthentication(String jwt) {
+        if (verifiedTokenCache != null) {
+            Authentication cached = verifiedTokenCache.get(jwt);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        TokenValidationResult result = this.tokenProvider.parseToken(jwt);
+        if (!result.isValid()) {
+            return null;
+        }
+        Authentication authentication = this.tokenProvider.getAuthentication(result.getClaims(), jwt);
+        if (verifiedTokenCache != null) {
+            verifiedTokenCache.put(jwt, authentication, result.getClaims().getExpiration());
+        }
+        return authentication;
+    }
+
     private String resolveToken(HttpServletRequest request) {
         String bearerToken = request.getHeader(AUTHORIZATION_HEADER);
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,151 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.TokenEpoch;
+import com.sekhmet.sekhmetapi.repository.TokenEpochRepository;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory copy of the {@link TokenEpoch}s, so that revoked JWTs are rejected without a database lookup. Only the
+ * creation of a token, which is rare, reads the epoch of its user from the database.
+ * <p>
+ * The epochs are loaded at startup. A revocation is applied on the local node when its transaction commits, and the
+ * other nodes see it at their next {@link #refresh()}, which only reads the epochs bumped since the previous one. Only
+ * the cached tokens of the revoked user are verified again.
+ */
+@Component
+public class TokenEpochStore {
+
+    private final Logger log = LoggerFactory.getLogger(TokenEpochStore.class);
+
+    private final Map<String, Integer> epochs = new ConcurrentHashMap<>();
+
+    private final TokenEpochRepository tokenEpochRepository;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final long refreshOverlapSeconds;
+
+    private volatile Instant lastRefresh;
+
+    public TokenEpochStore(
+        TokenEpochRepository tokenEpochRepository,
+        VerifiedTokenCache verifiedTokenCache,
+        ApplicationProperties applicationProperties
+    ) {
+        this.tokenEpochRepository = tokenEpochRepository;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.refreshOverlapSeconds = applicationProperties.getSecurity().getTokenEpochs().getRefreshOverlapSeconds();
+    }
+
+    /**
+     * Get the epoch to embed in a new token of the user.
+     * <p>
+     * The epoch is read from the database rather than from the in-memory copy, which misses the revocations made on
+     * the other nodes since the last {@link #refresh()}: a token issued with such a stale epoch would be rejected as
+     * revoked right after the next one.
+     *
+     * @param login the login of the user.
+     * @return the current epoch of the user.
+     */
+    public int currentEpoch(String login) {
+        int epoch = tokenEpochRepository.findById(login).map(TokenEpoch::getEpoch).orElse(0);
+        if (epoch > 0) {
+            apply(login, epoch);
+        }
+        // a revocation of this node is applied in memory when committed, and may not be visible to this read yet
+        return Math.max(epoch, epochs.getOrDefault(login, 0));
+    }
+
+    /**
+     * Check whether a token was issued before the last revocation of its user.
+     *
+     * @param login the login of the user.
+     * @param tokenEpoch the epoch claimed by the token.
+     * @return {@code true} if the token is revoked.
+     */
+    public boolean isRevoked(String login, int tokenEpoch) {
+        Integer epoch = epochs.get(login);
+        return epoch != null && tokenEpoch < epoch;
+    }
+
+    /**
+     * Revoke all the tokens issued to the user so far. Must be called in the transaction changing the user.
+     *
+     * @param login the login of the user.
+     */
+    public void revoke(String login) {
+        TokenEpoch tokenEpoch = tokenEpochRepository
+            .findById(login)
+            .orElseGet(() -> {
+                TokenEpoch newTokenEpoch = new TokenEpoch();
+                newTokenEpoch.setLogin(login);
+                return newTokenEpoch;
+            });
+        int epoch = Math.max(tokenEpoch.getEpoch(), epochs.getOrDefault(login, 0)) + 1;
+        tokenEpoch.setEpoch(epoch);
+        tokenEpoch.setRevokedDate(Instant.now());
+        tokenEpochRepository.save(tokenEpoch);
+        log.debug("Revoking the tokens of user {} up to epoch {}", login, epoch);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        apply(login, epoch);
+                    }
+                }
+            );
+        } else {
+            apply(login, epoch);
+        }
+    }
+
+    /**
+     * Load all the epochs, before the first token is checked. Retried by the next {@link #refresh()} if the database
+     * is not ready yet.
+     */
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * Read the epochs bumped by the other nodes since the previous refresh.
+     */
+    @Scheduled(fixedDelayString = "${application.security.token-epochs.refresh-interval-ms:10000}")
+    public void refresh() {
+        Instant start = Instant.now();
+        try {
+            List<TokenEpoch> tokenEpochs = lastRefresh == null
+                ? tokenEpochRepository.findAll()
+                : tokenEpochRepository.findAllByRevokedDateAfter(lastRefresh.minusSeconds(refreshOverlapSeconds));
+            tokenEpochs.forEach(tokenEpoch -> apply(tokenEpoch.getLogin(), tokenEpoch.getEpoch()));
+            lastRefresh = start;
+        } catch (DataAccessException e) {
+            log.warn("Could not refresh the token epochs: {}", e.getMessage());
+        }
+    }
+
+    private void apply(String login, int epoch) {
+        Integer previous = epochs.get(login);
+        if (previous != null && previous >= epoch) {
+            return;
+        }
+        epochs.merge(login, epoch, Math::max);
+        // tokens of the user may already be cached: verify them again
+        verifiedTokenCache.evictUser(login);
+    }
+}
@@ -8,9 +8,10 @@ import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -27,6 +28,10 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    private static final String EPOCH_KEY = "epoch";
+
+    private static final int MAX_INTERNED_AUTHORITY_SETS = 64;
+
     private final Key key;
 
     private final JwtParser jwtParser;
@@ -37,7 +42,22 @@ public class TokenProvider {
 
     private final SecurityMetersService securityMetersService;
 
+    private final TokenEpochStore tokenEpochStore;
+
+    private final Map<String, List<GrantedAuthority>> authoritySets = new ConcurrentHashMap<>();
+
+    private final Map<String, GrantedAuthority> grantedAuthorities = new ConcurrentHashMap<>();
+
     public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
+        this(jHipsterProperties, securityMetersService, null);
+    }
+
+    @Autowired
+    public TokenProvider(
+        JHipsterProperties jHipsterProperties,
+        SecurityMetersService securityMetersService,
+        TokenEpochStore tokenEpochStore
+    ) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
         if (!ObjectUtils.isEmpty(secret)) {
@@ -58,10 +78,12 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
 
         this.securityMetersService = securityMetersService;
+        this.tokenEpochStore = tokenEpochStore;
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
-        String authorities = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(","));
+        long start = System.nanoTime();
+        String authorities = joinAuthorities(authentication.getAuthorities());
 
         long now = (new Date()).getTime();
         Date validity;
@@ -71,23 +93,24 @@ public class TokenProvider {
             validity = new Date(now + this.tokenValidityInMilliseconds);
         }
 
-        return Jwts
-            .builder()
-            .setSubject(authentication.getName())
-            .claim(AUTHORITIES_KEY, authorities)
-            .signWith(key, SignatureAlgorithm.HS512)
-            .setExpiration(validity)
-            .compact();
+        JwtBuilder builder = Jwts.builder().setSubject(authentication.getName()).claim(AUTHORITIES_KEY, authorities);
+        int epoch = tokenEpochStore != null ? tokenEpochStore.currentEpoch(authentication.getName()) : 0;
+        if (epoch > 0) {
+            // tokens without the claim are at epoch 0, as the ones issued before revocations existed
+            builder.claim(EPOCH_KEY, epoch);
+        }
+        String token = builder.signWith(key, SignatureAlgorithm.HS512).setExpiration(validity).compact();
+        this.securityMetersService.recordTokenCreation(System.nanoTime() - start, token.length());
+        return token;
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return getAuthentication(jwtParser.parseClaimsJws(token).getBody(), token);
+    }
 
-        Collection<? extends GrantedAuthority> authorities = Arrays
-            .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-            .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
-            .collect(Collectors.toList());
+    public Authentication getAuthentication(Claims claims, String token) {
+        Object authoritiesClaim = claims.get(AUTHORITIES_KEY);
+        List<GrantedAuthority> authorities = getAuthorities(authoritiesClaim != null ? authoritiesClaim.toString() : "");
 
         User principal = new User(claims.getSubject(), "", authorities);
 
@@ -95,30 +118,106 @@ public class TokenProvider {
     }
 
     public boolean validateToken(String authToken) {
-        try {
-            jwtParser.parseClaimsJws(authToken);
+        return parseToken(authToken).isValid();
+    }
 
-            return true;
+    /**
+     * Verify the token once, so that callers can both validate it and build its authentication from the same claims.
+     *
+     * @param authToken the JWT to verify.
+     * @return the verified claims, or the reason why the token was rejected.
+     */
+    public TokenValidationResult parseToken(String authToken) {
+        long start = System.nanoTime();
+        TokenValidationResult result = verifyToken(authToken);
+        this.securityMetersService.recordTokenParsing(result.getOutcome(), System.nanoTime() - start);
+        return result;
+    }
+
+    private TokenValidationResult verifyToken(String authToken) {
+        try {
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            if (isRevoked(claims)) {
+                this.securityMetersService.trackTokenRevoked();
+
+                log.trace("Revoked JWT token of user {}.", claims.getSubject());
+                return TokenValidationResult.invalid(TokenValidationResult.Cause.REVOKED);
+            }
+            return TokenValidationResult.valid(claims);
         } catch (ExpiredJwtException e) {
             this.securityMetersService.trackTokenExpired();
 
             log.trace("Invalid JWT token.", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Cause.EXPIRED);
         } catch (UnsupportedJwtException e) {
             this.securityMetersService.trackTokenUnsupported();
 
             log.trace("Invalid JWT token.", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Cause.UNSUPPORTED);
         } catch (MalformedJwtException e) {
             this.securityMetersService.trackTokenMalformed();
 
             log.trace("Invalid JWT token.", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Cause.MALFORMED);
         } catch (SignatureException e) {
             this.securityMetersService.trackTokenInvalidSignature();
 
             log.trace("Invalid JWT token.", e);
+            return TokenValidationResult.invalid(TokenValidationResult.Cause.INVALID_SIGNATURE);
         } catch (IllegalArgumentException e) { // TODO: should we let it bubble (no catch), to avoid defensive programming and follow the fail-fast principle?
             log.error("Token validation error {}", e.getMessage());
+            return TokenValidationResult.invalid(TokenValidationResult.Cause.ILLEGAL_ARGUMENT);
         }
+    }
+
+    private boolean isRevoked(Claims claims) {
+        if (tokenEpochStore == null) {
+            return false;
+        }
+        Object epoch = claims.get(EPOCH_KEY);
+        return tokenEpochStore.isRevoked(claims.getSubject(), epoch instanceof Number ? ((Number) epoch).intValue() : 0);
+    }
 
-        return false;
+    /**
+     * Get the immutable authorities of an {@code auth} claim.
+     * <p>
+     * Only a handful of distinct claims exist (ROLE_USER, ROLE_ADMIN and their combinations), so the parsed lists are
+     * interned and shared by all the tokens carrying the same claim.
+     */
+    List<GrantedAuthority> getAuthorities(String authoritiesClaim) {
+        List<GrantedAuthority> authorities = authoritySets.get(authoritiesClaim);
+        if (authorities != null) {
+            return authorities;
+        }
+        authorities = parseAuthorities(authoritiesClaim);
+        if (authoritySets.size() >= MAX_INTERNED_AUTHORITY_SETS) {
+            return authorities;
+        }
+        List<GrantedAuthority> interned = authoritySets.putIfAbsent(authoritiesClaim, authorities);
+        return interned != null ? interned : authorities;
+    }
+
+    private List<GrantedAuthority> parseAuthorities(String authoritiesClaim) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String authority : authoritiesClaim.split(",")) {
+            if (!authority.trim().isEmpty()) {
+                authorities.add(grantedAuthorities.computeIfAbsent(authority, SimpleGrantedAuthority::new));
+            }
+        }
+        return List.copyOf(authorities);
+    }
+
+    private static String joinAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities.size() == 1) {
+            return authorities.iterator().next().getAuthority();
+        }
+        StringBuilder joined = new StringBuilder();
+        for (GrantedAuthority authority : authorities) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(authority.getAuthority());
+        }
+        return joined.toString();
     }
 }
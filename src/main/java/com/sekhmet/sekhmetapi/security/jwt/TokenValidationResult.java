@@ -0,0 +1,78 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Outcome of a single parse of a JWT: either the verified claims, or the reason why the token was rejected.
+ */
+public final class TokenValidationResult {
+
+    public enum Cause {
+        EXPIRED("expired"),
+        UNSUPPORTED("unsupported"),
+        MALFORMED("malformed"),
+        INVALID_SIGNATURE("invalid-signature"),
+        ILLEGAL_ARGUMENT("illegal-argument"),
+        REVOKED("revoked");
+
+        private final String tag;
+
+        Cause(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return the value of the cause in the metrics.
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Claims claims;
+
+    private final Cause cause;
+
+    private TokenValidationResult(Claims claims, Cause cause) {
+        this.claims = claims;
+        this.cause = cause;
+    }
+
+    static TokenValidationResult valid(Claims claims) {
+        return new TokenValidationResult(claims, null);
+    }
+
+    static TokenValidationResult invalid(Cause cause) {
+        return new TokenValidationResult(null, cause);
+    }
+
+    public boolean isValid() {
+        return claims != null;
+    }
+
+    /**
+     * @return the verified claims, or {@code null} if the token is not valid.
+     */
+    public Claims getClaims() {
+        return claims;
+    }
+
+    /**
+     * @return the reason why the token was rejected, or {@code null} if the token is valid.
+     */
+    public Cause getCause() {
+        return cause;
+    }
+
+    /**
+     * @return {@code valid}, or the tag of the cause, as recorded in the metrics.
+     */
+    public String getOutcome() {
+        return isValid() ? "valid" : cause.getTag();
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "TokenValidationResult{valid}" : "TokenValidationResult{cause=" + cause + "}";
+    }
+}
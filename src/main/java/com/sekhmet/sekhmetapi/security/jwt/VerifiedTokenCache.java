@@ -0,0 +1,156 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of the {@link Authentication} built from already verified JWTs.
+ * <p>
+ * Entries are keyed by a SHA-256 digest of the token, so that the raw token is never kept in memory, and never outlive
+ * the token expiration or the configured time to live.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(VerifiedTokenCache::newDigest);
+
+    private final Map<String, CachedAuthentication> entries = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final int maxEntries;
+
+    private final long timeToLiveInMilliseconds;
+
+    private final SecurityMetersService securityMetersService;
+
+    public VerifiedTokenCache(ApplicationProperties applicationProperties, SecurityMetersService securityMetersService) {
+        ApplicationProperties.SecurityProperties.TokenCache tokenCache = applicationProperties.getSecurity().getTokenCache();
+        this.enabled = tokenCache.isEnabled() && tokenCache.getMaxEntries() > 0;
+        this.maxEntries = tokenCache.getMaxEntries();
+        this.timeToLiveInMilliseconds = 1000 * tokenCache.getTimeToLiveSeconds();
+        this.securityMetersService = securityMetersService;
+    }
+
+    /**
+     * Get the authentication of an already verified token.
+     *
+     * @param token the JWT.
+     * @return the cached authentication, or {@code null} if the token was not verified recently.
+     */
+    public Authentication get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        String key = digest(token);
+        CachedAuthentication cached = entries.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            securityMetersService.trackTokenCacheHit();
+            return cached.authentication;
+        }
+        if (cached != null) {
+            entries.remove(key, cached);
+        }
+        securityMetersService.trackTokenCacheMiss();
+        return null;
+    }
+
+    /**
+     * Cache the authentication of a token whose signature has just been verified.
+     *
+     * @param token the JWT.
+     * @param authentication the authentication built from the token claims.
+     * @param expiration the token expiration, may be {@code null}.
+     */
+    public void put(String token, Authentication authentication, Date expiration) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = now + timeToLiveInMilliseconds;
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(digest(token), new CachedAuthentication(authentication, expiresAt));
+    }
+
+    /**
+     * Remove the cached authentications of a user, so that its tokens get verified again. The other users keep theirs.
+     *
+     * @param login the login of the user.
+     */
+    public void evictUser(String login) {
+        entries.values().removeIf(cached -> login.equals(cached.authentication.getName()));
+    }
+
+    /**
+     * Remove all the cached authentications, so that every token gets verified again.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(cached -> cached.expiresAt <= now);
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        // Still full of live tokens: drop a tenth of the entries, in hash order which is close enough to random.
+        int toRemove = Math.max(1, entries.size() - (maxEntries - maxEntries / 10));
+        log.debug("Token cache is full, evicting {} entries", toRemove);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedAuthentication {
+
+        private final Authentication authentication;
+        private final long expiresAt;
+
+        private CachedAuthentication(Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,58 +1,154 @@
 package com.sekhmet.sekhmetapi.service;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
 import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.domain.UserReindex;
+import com.sekhmet.sekhmetapi.repository.UserReindexRepository;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
-import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
+import com.sekhmet.sekhmetapi.service.dto.ReindexStatusDTO;
 import io.micrometer.core.annotation.Timed;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
-import javax.persistence.ManyToMany;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetMappingsRequest;
+import org.elasticsearch.common.settings.Settings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.annotations.Setting;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.IndexOperations;
-import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.elasticsearch.core.ResourceUtil;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Rebuilds the user index without interrupting the search.
+ * <p>
+ * The index of the {@link User} documents is an alias. A reindex builds a new, versioned index while the alias keeps
+ * serving the current one: the users are read by keyset on their id, page after page in short read-only transactions,
+ * and sent as parallel bulk requests. The alias is then swapped to the new index in a single atomic request, and the
+ * previous index deleted.
+ * <p>
+ * A {@link UserReindex} holds back the {@link UserSearchIndexer} of all the nodes meanwhile: the users changed or
+ * deleted during the reindex stay queued, and are indexed in the new index once it is swapped. A single reindex runs at
+ * a time across the nodes; it renews its lease while it runs, so that the indexing resumes if its node stops.
+ * <p>
+ * With the Elasticsearch search engine, the users are also reindexed at startup when the index lacks some fields of
+ * the mapping of the {@link User} documents, such as an index created before the analyzed name fields were added.
+ */
 @Service
-@Transactional(readOnly = true)
 public class ElasticsearchIndexService {
 
     private static final Lock reindexLock = new ReentrantLock();
 
+    private static final DateTimeFormatter INDEX_VERSION_FORMAT = DateTimeFormatter
+        .ofPattern("yyyyMMddHHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
     private final Logger log = LoggerFactory.getLogger(ElasticsearchIndexService.class);
 
     private final UserRepository userRepository;
 
-    private final UserSearchRepository userSearchRepository;
+    private final UserReindexRepository userReindexRepository;
+
+    private final UserSearchIndexer userSearchIndexer;
 
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
+    private final TransactionTemplate readTransaction;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final ApplicationProperties.SearchProperties search;
+
+    private final ApplicationProperties.SearchProperties.Reindex reindex;
+
+    private final AtomicLong indexed = new AtomicLong();
+
+    private volatile ReindexStatusDTO.State state = ReindexStatusDTO.State.IDLE;
+
+    private volatile String index;
+
+    private volatile Instant startedDate;
+
+    private volatile Instant finishedDate;
+
+    private volatile long total;
+
+    private volatile String error;
+
     public ElasticsearchIndexService(
         UserRepository userRepository,
-        UserSearchRepository userSearchRepository,
-        ElasticsearchRestTemplate elasticsearchTemplate
+        UserReindexRepository userReindexRepository,
+        UserSearchIndexer userSearchIndexer,
+        ElasticsearchRestTemplate elasticsearchTemplate,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
     ) {
         this.userRepository = userRepository;
-        this.userSearchRepository = userSearchRepository;
+        this.userReindexRepository = userReindexRepository;
+        this.userSearchIndexer = userSearchIndexer;
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.search = applicationProperties.getSearch();
+        this.reindex = applicationProperties.getSearch().getReindex();
+    }
+
+    /**
+     * Reindex the users if the index misses some fields of their mapping: the searches on these fields would find
+     * nothing until then. All the nodes check it, a single one reindexes.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexOutdatedIndex() {
+        if (!search.isElasticsearch()) {
+            return;
+        }
+        String alias = elasticsearchTemplate.getIndexCoordinatesFor(User.class).getIndexName();
+        Set<String> missingFields;
+        try {
+            missingFields = missingFields(alias);
+        } catch (RuntimeException e) {
+            log.warn("Elasticsearch: could not check the mapping of the index {}: {}", alias, e.getMessage());
+            return;
+        }
+        if (!missingFields.isEmpty()) {
+            log.warn("Elasticsearch: the index {} misses the fields {}, reindexing the users", alias, missingFields);
+            reindexAll();
+        }
     }
 
     @Async
@@ -60,9 +156,13 @@ public class ElasticsearchIndexService {
     public void reindexAll() {
         if (reindexLock.tryLock()) {
             try {
-                reindexForClass(User.class, userRepository, userSearchRepository);
-
-                log.info("Elasticsearch: Successfully performed reindexing");
+                if (reindexUsers()) {
+                    log.info("Elasticsearch: Successfully performed reindexing");
+                } else {
+                    log.info("Elasticsearch: concurrent reindexing attempt, on another node");
+                }
+            } catch (RuntimeException e) {
+                log.error("Elasticsearch: reindexing failed", e);
             } finally {
                 reindexLock.unlock();
             }
@@ -71,65 +171,249 @@ public class ElasticsearchIndexService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T, ID extends Serializable> void reindexForClass(
-        Class<T> entityClass,
-        JpaRepository<T, ID> jpaRepository,
-        ElasticsearchRepository<T, ID> elasticsearchRepository
-    ) {
-        final IndexOperations indexOperations = elasticsearchTemplate.indexOps(entityClass);
-        indexOperations.delete();
-        indexOperations.create();
-        indexOperations.putMapping();
-        if (jpaRepository.count() > 0) {
-            // if a JHipster entity field is the owner side of a many-to-many relationship, it should be loaded manually
-            List<Method> relationshipGetters = Arrays
-                .stream(entityClass.getDeclaredFields())
-                .filter(field -> field.getType().equals(Set.class))
-                .filter(field -> field.getAnnotation(ManyToMany.class) != null)
-                .filter(field -> field.getAnnotation(ManyToMany.class).mappedBy().isEmpty())
-                .filter(field -> field.getAnnotation(JsonIgnore.class) == null)
-                .map(field -> {
-                    try {
-                        return new PropertyDescriptor(field.getName(), entityClass).getReadMethod();
-                    } catch (IntrospectionException e) {
-                        log.error(
-                            "Error retrieving getter for class {}, field {}. Field will NOT be indexed",
-                            entityClass.getSimpleName(),
-                            field.getName(),
-                            e
-                        );
-                        return null;
+    /**
+     * @return the progress of the running reindex, or the outcome of the last one.
+     */
+    public ReindexStatusDTO getReindexStatus() {
+        return new ReindexStatusDTO(state, index, startedDate, finishedDate, total, indexed.get(), error);
+    }
+
+    /**
+     * @return whether the users were reindexed, rather than by a reindex running on another node.
+     */
+    private boolean reindexUsers() {
+        String alias = elasticsearchTemplate.getIndexCoordinatesFor(User.class).getIndexName();
+        Instant start = Instant.now();
+        String newIndex = alias + "-" + INDEX_VERSION_FORMAT.format(start);
+        if (!startReindex(alias, newIndex, start)) {
+            return false;
+        }
+        index = newIndex;
+        startedDate = start;
+        finishedDate = null;
+        error = null;
+        indexed.set(0);
+        total = userRepository.count();
+        state = ReindexStatusDTO.State.RUNNING;
+
+        boolean swapped = false;
+        try {
+            createIndex(newIndex);
+            copyUsers(alias, newIndex);
+            completeIndex(newIndex);
+            // the changes are still held back when swapping
+            renewReindex(alias, newIndex);
+            List<String> previousIndices = swapAlias(alias, newIndex);
+            swapped = true;
+            // in case the lease expired between two renewals, and other nodes indexed some changes in the previous index
+            writeTransaction.executeWithoutResult(status ->
+                userSearchIndexer.enqueue(userRepository.findAllIdsByLastModifiedDateGreaterThanEqual(start))
+            );
+            previousIndices.forEach(previousIndex -> elasticsearchTemplate.indexOps(IndexCoordinates.of(previousIndex)).delete());
+            log.info("Elasticsearch: Indexed {} users in {}, replacing {}", indexed.get(), newIndex, previousIndices);
+            state = ReindexStatusDTO.State.COMPLETED;
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            state = ReindexStatusDTO.State.FAILED;
+            if (!swapped) {
+                deleteQuietly(newIndex);
+            }
+            throw e;
+        } finally {
+            releaseReindex(alias, newIndex);
+            finishedDate = Instant.now();
+            userSearchIndexer.resume();
+        }
+        return true;
+    }
+
+    /**
+     * Hold back the indexing of the changes on all the nodes, unless another node is reindexing.
+     *
+     * @return whether the reindex started.
+     */
+    private boolean startReindex(String alias, String newIndex, Instant start) {
+        try {
+            return Boolean.TRUE.equals(
+                writeTransaction.execute(status -> {
+                    UserReindex userReindex = userReindexRepository.findById(alias).orElseGet(UserReindex::new);
+                    if (userReindex.getLockedUntil() != null && !userReindex.getLockedUntil().isBefore(start)) {
+                        return false;
                     }
+                    userReindex.setAlias(alias);
+                    userReindex.setTargetIndex(newIndex);
+                    userReindex.setStartedDate(start);
+                    userReindex.setLockedUntil(start.plusSeconds(reindex.getLeaseSeconds()));
+                    userReindexRepository.save(userReindex);
+                    return true;
                 })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-            int size = 100;
-            for (int i = 0; i <= jpaRepository.count() / size; i++) {
-                Pageable page = PageRequest.of(i, size);
-                log.info("Indexing page {} of {}, size {}", i, jpaRepository.count() / size, size);
-                Page<T> results = jpaRepository.findAll(page);
-                results.map(result -> {
-                    // if there are any relationships to load, do it now
-                    relationshipGetters.forEach(method -> {
-                        try {
-                            // eagerly load the relationship set
-                            ((Set) method.invoke(result)).size();
-                        } catch (Exception ex) {
-                            log.error(ex.getMessage());
+            );
+        } catch (DataIntegrityViolationException e) {
+            // started by another node meanwhile
+            return false;
+        }
+    }
+
+    /**
+     * Extend the lease of the reindex, which the other nodes no longer honour once it expired.
+     */
+    private void renewReindex(String alias, String newIndex) {
+        Instant now = Instant.now();
+        Integer renewed = writeTransaction.execute(status ->
+            userReindexRepository.renew(alias, newIndex, now, now.plusSeconds(reindex.getLeaseSeconds()))
+        );
+        if (renewed == null || renewed == 0) {
+            throw new IllegalStateException("The lease of the reindex into " + newIndex + " expired");
+        }
+    }
+
+    private void releaseReindex(String alias, String newIndex) {
+        try {
+            writeTransaction.executeWithoutResult(status -> userReindexRepository.release(alias, newIndex));
+        } catch (DataAccessException e) {
+            log.warn("Could not release the reindex into {}, the changes are indexed once it expires: {}", newIndex, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the fields of the mapping of the users which the index doesn't have, all of them if it doesn't exist.
+     */
+    private Set<String> missingFields(String alias) {
+        Set<String> missingFields = new TreeSet<>(fieldNames(elasticsearchTemplate.indexOps(User.class).createMapping(User.class)));
+        elasticsearchTemplate.execute(client -> {
+            if (client.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+                // keyed by the index behind the alias
+                client
+                    .indices()
+                    .getMapping(new GetMappingsRequest().indices(alias), RequestOptions.DEFAULT)
+                    .mappings()
+                    .values()
+                    .forEach(mapping -> missingFields.removeAll(fieldNames(mapping.sourceAsMap())));
+            }
+            return null;
+        });
+        return missingFields;
+    }
+
+    /**
+     * @return the names of the fields of a mapping, with their inner fields as {@code name.suffix}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<String> fieldNames(Map<String, Object> mapping) {
+        Set<String> names = new HashSet<>();
+        Map<String, Object> properties = (Map<String, Object>) mapping.getOrDefault("properties", Map.of());
+        properties.forEach((name, field) -> {
+            names.add(name);
+            Map<String, Object> innerFields = (Map<String, Object>) ((Map<String, Object>) field).getOrDefault("fields", Map.of());
+            innerFields.keySet().forEach(suffix -> names.add(name + "." + suffix));
+        });
+        return names;
+    }
+
+    private void createIndex(String newIndex) {
+        Document settings = Document.parse(ResourceUtil.readFileFromClasspath(User.class.getAnnotation(Setting.class).settingPath()));
+        // refreshed once complete, rather than every second while it is written
+        settings.put(REFRESH_INTERVAL, "-1");
+        IndexOperations indexOperations = elasticsearchTemplate.indexOps(IndexCoordinates.of(newIndex));
+        indexOperations.create(settings);
+        indexOperations.putMapping(indexOperations.createMapping(User.class));
+    }
+
+    private void copyUsers(String alias, String newIndex) {
+        IndexCoordinates coordinates = IndexCoordinates.of(newIndex);
+        int batchSize = Math.max(1, reindex.getBatchSize());
+        int slices = Math.max(1, reindex.getSlices());
+        Sort byId = Sort.by("id");
+        ExecutorService executor = Executors.newFixedThreadPool(slices, new CustomizableThreadFactory("sekhmet-api-reindex-"));
+        // bounds the pages read ahead of the bulk requests
+        Semaphore inFlight = new Semaphore(slices);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            List<Object> after = null;
+            List<User> users;
+            do {
+                List<Object> position = after;
+                users =
+                    readTransaction.execute(status -> {
+                        List<User> page = userRepository.findAllAfter(byId, position, false, batchSize);
+                        if (!page.isEmpty()) {
+                            // fetches the authorities of the users of the page, which are indexed out of the transaction
+                            userRepository.findAllWithAuthoritiesByIdIn(page.stream().map(User::getId).collect(Collectors.toList()));
                         }
+                        return page;
                     });
-                    return result;
+                if (users.isEmpty()) {
+                    break;
+                }
+                renewReindex(alias, newIndex);
+                inFlight.acquire();
+                if (failure.get() != null) {
+                    throw failure.get();
+                }
+                List<User> bulk = users;
+                executor.execute(() -> {
+                    try {
+                        elasticsearchTemplate.save(bulk, coordinates);
+                        indexed.addAndGet(bulk.size());
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
                 });
-                elasticsearchRepository.saveAll(results.getContent());
+                after = List.of(users.get(users.size() - 1).getId());
+            } while (users.size() == batchSize);
+            // waits for the last bulk requests
+            inFlight.acquire(slices);
+            if (failure.get() != null) {
+                throw failure.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reindexing the users", e);
+        } finally {
+            executor.shutdownNow();
         }
-        log.info("Elasticsearch: Indexed all rows for {}", entityClass.getSimpleName());
     }
 
-    private <T> String getIndexname(Class<T> entityClass) {
-        Document document = entityClass.getAnnotation(Document.class);
-        return document != null ? document.indexName() : null;
+    private void completeIndex(String newIndex) {
+        // back to the default refresh interval
+        UpdateSettingsRequest request = new UpdateSettingsRequest(newIndex).settings(Settings.builder().putNull(REFRESH_INTERVAL));
+        elasticsearchTemplate.execute(client -> client.indices().putSettings(request, RequestOptions.DEFAULT));
+        elasticsearchTemplate.indexOps(IndexCoordinates.of(newIndex)).refresh();
+    }
+
+    /**
+     * Point the alias to the new index only, in a single request.
+     *
+     * @return the indices the alias pointed to until then.
+     */
+    private List<String> swapAlias(String alias, String newIndex) {
+        return elasticsearchTemplate.execute(client -> {
+            Set<String> previousIndices = client
+                .indices()
+                .getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT)
+                .getAliases()
+                .keySet();
+            IndicesAliasesRequest request = new IndicesAliasesRequest();
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(newIndex).alias(alias));
+            previousIndices.forEach(previousIndex ->
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(previousIndex).alias(alias))
+            );
+            if (previousIndices.isEmpty() && client.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+                // the index created before there was an alias, under its name
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(alias));
+            }
+            client.indices().updateAliases(request, RequestOptions.DEFAULT);
+            return new ArrayList<>(previousIndices);
+        });
+    }
+
+    private void deleteQuietly(String newIndex) {
+        try {
+            elasticsearchTemplate.indexOps(IndexCoordinates.of(newIndex)).delete();
+        } catch (RuntimeException e) {
+            log.warn("Could not delete the index {}: {}", newIndex, e.getMessage());
+        }
     }
 }
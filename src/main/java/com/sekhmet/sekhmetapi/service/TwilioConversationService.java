@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sekhmet.sekhmetapi.config.ApplicationProperties;
 import com.sekhmet.sekhmetapi.domain.enumeration.ConversationTypeEnum;
 import com.sekhmet.sekhmetapi.domain.enumeration.TwilioRole;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
 import com.sekhmet.sekhmetapi.service.dto.ConversationDto;
 import com.twilio.exception.ApiException;
 import com.twilio.jwt.accesstoken.AccessToken;
@@ -12,12 +13,19 @@ import com.twilio.jwt.accesstoken.ChatGrant;
 import com.twilio.rest.conversations.v1.Conversation;
 import com.twilio.rest.conversations.v1.User;
 import com.twilio.rest.conversations.v1.conversation.Participant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -30,27 +38,86 @@ public class TwilioConversationService {
     public static final String DUAL_CONVERSATION_FORMAT_ID = "DUAL_%s_%s";
     public static final String GROUP_CONVERSATION_FORMAT_ID = "GROUP_%s";
     public static final int PAGE_SIZE = 10000;
+    public static final String ACCESS_TOKENS_CACHE = "twilioAccessTokens";
+    public static final String ACCESS_TOKENS_METER_NAME = "twilio.access-tokens";
     private final UserService userService;
     private final ObjectMapper objectMapper;
     private final ApplicationProperties.SmsProperties.TwilioPreperties smsProps;
+    private final CacheManager cacheManager;
+    private final Counter accessTokenCacheHitCounter;
+    private final Counter accessTokenMintCounter;
+    private final SecurityMetersService securityMetersService;
 
-    public TwilioConversationService(UserService userService, ApplicationProperties applicationProperties) {
+    public TwilioConversationService(
+        UserService userService,
+        ApplicationProperties applicationProperties,
+        CacheManager cacheManager,
+        MeterRegistry meterRegistry,
+        SecurityMetersService securityMetersService
+    ) {
         this.smsProps = applicationProperties.getSms().getTwilio();
         this.userService = userService;
+        this.cacheManager = cacheManager;
         objectMapper = new ObjectMapper();
+        this.accessTokenCacheHitCounter = accessTokensCounterForResult("cache-hit").register(meterRegistry);
+        this.accessTokenMintCounter = accessTokensCounterForResult("minted").register(meterRegistry);
+        this.securityMetersService = securityMetersService;
+    }
+
+    private Counter.Builder accessTokensCounterForResult(String result) {
+        return Counter
+            .builder(ACCESS_TOKENS_METER_NAME)
+            .description("Indicates the Twilio access tokens served from the cache or minted.")
+            .baseUnit("tokens")
+            .tag("result", result);
     }
 
+    /**
+     * Get a Twilio access token for the user, reusing the previous one until it expires within the refresh window.
+     *
+     * @param userId the id of the user, used as Twilio identity.
+     * @return the signed access token.
+     */
     public String generateAccessToken(UUID userId) {
+        Cache cache = cacheManager.getCache(ACCESS_TOKENS_CACHE);
+        long refreshAt = System.currentTimeMillis() + 1000 * smsProps.getAccessTokenRefreshWindowSeconds();
+        CachedAccessToken cached = cache != null ? cache.get(userId, CachedAccessToken.class) : null;
+        if (cached != null && cached.getExpiresAt() > refreshAt) {
+            accessTokenCacheHitCounter.increment();
+            return cached.getToken();
+        }
+        CachedAccessToken minted = mintAccessToken(userId);
+        if (cache != null) {
+            cache.put(userId, minted);
+        }
+        return minted.getToken();
+    }
+
+    private CachedAccessToken mintAccessToken(UUID userId) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            CachedAccessToken minted = signAccessToken(userId);
+            outcome = "success";
+            return minted;
+        } finally {
+            securityMetersService.recordTwilioTokenMinting(outcome, System.nanoTime() - start);
+        }
+    }
+
+    private CachedAccessToken signAccessToken(UUID userId) {
         ChatGrant grant = new ChatGrant();
         grant.setServiceSid(smsProps.getConversationSid());
 
+        int ttl = (int) smsProps.getAccessTokenTtlSeconds();
+        long expiresAt = System.currentTimeMillis() + 1000L * ttl;
         AccessToken token = new AccessToken.Builder(smsProps.getAccountSid(), smsProps.getApiSid(), smsProps.getApiSecret())
             .identity(userId.toString())
             .grant(grant)
-            //.ttl(30)
-            .ttl(86400) // 24 hours
+            .ttl(ttl)
             .build();
-        return token.toJwt();
+        accessTokenMintCounter.increment();
+        return new CachedAccessToken(token.toJwt(), expiresAt);
     }
 
     public void createAllUsers() {
@@ -155,11 +222,15 @@ public class TwilioConversationService {
         if (conversation != null) {
             Conversation finalConversation = conversation;
             createParticipant(currentUser, conversation, Pair.of(TwilioRole.CHANNEL_ADMIN, smsProps.getChannelAdminSid()));
+            Map<UUID, com.sekhmet.sekhmetapi.domain.User> users = userService
+                .getUsersByIds(conversationDto.getIds())
+                .stream()
+                .collect(Collectors.toMap(com.sekhmet.sekhmetapi.domain.User::getId, Function.identity()));
             conversationDto
                 .getIds()
                 .forEach(id -> {
-                    var participant = userService
-                        .getUserById(id)
+                    var participant = Optional
+                        .ofNullable(users.get(id))
                         .map(user ->
                             createParticipant(user, finalConversation, Pair.of(TwilioRole.CHANNEL_USER, smsProps.getChannelUserSid()))
                         );
@@ -294,6 +365,27 @@ public class TwilioConversationService {
 
     public void deleter() {}
 
+    private static final class CachedAccessToken implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String token;
+        private final long expiresAt;
+
+        private CachedAccessToken(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
     public void deleteConversation(String sid) {
         Conversation.deleter(sid).delete();
     }
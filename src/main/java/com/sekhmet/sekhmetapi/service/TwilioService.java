@@ -4,27 +4,80 @@ import com.sekhmet.sekhmetapi.config.ApplicationProperties;
 import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
 import com.sekhmet.sekhmetapi.service.dto.sms.StartPhoneVerificationRequest;
 import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
+import com.sekhmet.sekhmetapi.service.sms.VerificationProvider;
 import com.twilio.Twilio;
 import com.twilio.rest.verify.v2.service.Verification;
 import com.twilio.rest.verify.v2.service.VerificationCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+/**
+ * {@link VerificationProvider} backed by Twilio Verify, the default one.
+ */
 @Service
 @Slf4j
-public class TwilioService {
+public class TwilioService implements VerificationProvider {
+
+    public static final String COALESCED_METER_NAME = "sms.verification.coalesced";
 
     private final ApplicationProperties.SmsProperties.TwilioPreperties smsProps;
     private final TwilioConversationService conversationUserService;
+    private final Counter coalescedCounter;
+    // verification codes being sent, by phone number and channel
+    private final ConcurrentMap<String, CompletableFuture<VerificationStatus>> sendsInFlight = new ConcurrentHashMap<>();
 
-    public TwilioService(ApplicationProperties applicationProperties, TwilioConversationService conversationUserService) {
+    public TwilioService(
+        ApplicationProperties applicationProperties,
+        TwilioConversationService conversationUserService,
+        MeterRegistry meterRegistry
+    ) {
         this.smsProps = applicationProperties.getSms().getTwilio();
         this.conversationUserService = conversationUserService;
+        this.coalescedCounter =
+            Counter
+                .builder(COALESCED_METER_NAME)
+                .description("Indicates the number of verification code sends joining an identical one already in flight.")
+                .register(meterRegistry);
         Twilio.init(smsProps.getAccountSid(), smsProps.getAuthToken());
     }
 
+    /**
+     * Send a verification code. Identical requests received while a send is in flight wait for its result instead of
+     * calling Twilio again.
+     *
+     * @param request the phone number and channel.
+     * @return the status of the verification.
+     */
+    @Override
     public VerificationStatus sendVerificationCode(StartPhoneVerificationRequest request) {
+        String key = request.getPhoneNumber() + '|' + request.getChannel();
+        CompletableFuture<VerificationStatus> send = new CompletableFuture<>();
+        CompletableFuture<VerificationStatus> inFlight = sendsInFlight.putIfAbsent(key, send);
+        if (inFlight != null) {
+            coalescedCounter.increment();
+            log.debug("Verification code send already in flight, params: {}", request);
+            return join(inFlight);
+        }
+        try {
+            VerificationStatus status = createVerification(request);
+            send.complete(status);
+            return status;
+        } catch (RuntimeException e) {
+            send.completeExceptionally(e);
+            throw e;
+        } finally {
+            sendsInFlight.remove(key, send);
+        }
+    }
+
+    private VerificationStatus createVerification(StartPhoneVerificationRequest request) {
         Verification verification = Verification
             .creator(
                 smsProps.getVerifySid(),
@@ -37,6 +90,18 @@ public class TwilioService {
         return VerificationStatus.forValue(status);
     }
 
+    private static VerificationStatus join(CompletableFuture<VerificationStatus> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
     public VerificationStatus checkVerificationCode(CheckPhoneVerificationRequest request) {
         VerificationCheck verificationCheck = VerificationCheck
             .creator(smsProps.getVerifySid(), request.getToken())
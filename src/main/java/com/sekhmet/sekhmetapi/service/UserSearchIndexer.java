@@ -0,0 +1,388 @@
+package com.sekhmet.sekhmetapi.service;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.domain.UserIndexTask;
+import com.sekhmet.sekhmetapi.repository.UserIndexTaskRepository;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Indexes the changed users in Elasticsearch, in bulk, once their transactions commit.
+ * <p>
+ * A change enqueues a {@link UserIndexTask} in the transaction of the change, so that it is indexed even if the node
+ * stops or Elasticsearch is down. The queue is flushed once a batch of changes committed, or at the latest after the
+ * flush interval: the users of the tasks are read once however many times they changed, then indexed or, when they no
+ * longer exist, deleted from the index. The tasks of the users which could not be indexed are retried later, with a
+ * backoff.
+ * <p>
+ * A node only flushes the queue after the flush interval when changes committed on it, which costs no query while the
+ * users don't change. The retries which are due and the tasks left by the nodes which stopped are flushed by a rarer
+ * poll, which also refreshes the gauges of the queue.
+ * <p>
+ * The queue is shared by all the nodes, which claim the tasks of a batch of users for a lease before reading them, so
+ * that a user is indexed by a single node at a time. The tasks of a node stopping meanwhile are claimed again once
+ * their lease expires. No task is claimed while a {@link com.sekhmet.sekhmetapi.domain.UserReindex} is in progress, so
+ * that the changes made in the meantime are indexed in the new index once it replaced the current one.
+ */
+@Service
+public class UserSearchIndexer {
+
+    public static final String QUEUE_SIZE_METER_NAME = "search.indexing.queue.size";
+
+    public static final String QUEUE_LAG_METER_NAME = "search.indexing.queue.lag";
+
+    public static final String DOCUMENTS_METER_NAME = "search.indexing.documents";
+
+    public static final String BULK_METER_NAME = "search.indexing.bulk";
+
+    // the retry delay stops doubling long before overflowing
+    private static final int MAX_BACKOFF_EXPONENT = 20;
+
+    private final Logger log = LoggerFactory.getLogger(UserSearchIndexer.class);
+
+    private final Lock flushLock = new ReentrantLock();
+
+    // changes committed on this node since the last flush
+    private final AtomicInteger committed = new AtomicInteger();
+
+    private final AtomicLong queueSize = new AtomicLong();
+
+    // enqueue date of the oldest task in the queue, 0 when it is empty
+    private final AtomicLong oldestTaskMillis = new AtomicLong();
+
+    private final UserIndexTaskRepository userIndexTaskRepository;
+
+    private final UserRepository userRepository;
+
+    private final UserSearchRepository userSearchRepository;
+
+    private final TransactionTemplate readTransaction;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final Executor executor;
+
+    private final ApplicationProperties.SearchProperties.Indexing indexing;
+
+    private final Counter indexedCounter;
+
+    private final Counter deletedCounter;
+
+    private final Counter failedCounter;
+
+    private final Timer bulkTimer;
+
+    public UserSearchIndexer(
+        UserIndexTaskRepository userIndexTaskRepository,
+        UserRepository userRepository,
+        UserSearchRepository userSearchRepository,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor executor,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.userIndexTaskRepository = userIndexTaskRepository;
+        this.userRepository = userRepository;
+        this.userSearchRepository = userSearchRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.indexing = applicationProperties.getSearch().getIndexing();
+
+        Gauge
+            .builder(QUEUE_SIZE_METER_NAME, queueSize, AtomicLong::get)
+            .description("Indicates the number of user changes waiting to be indexed, as of the last flush indexing some.")
+            .baseUnit("tasks")
+            .register(meterRegistry);
+        TimeGauge
+            .builder(QUEUE_LAG_METER_NAME, this, TimeUnit.MILLISECONDS, UserSearchIndexer::lagMillis)
+            .description("Indicates how long the oldest user change has been waiting to be indexed, as of the last flush indexing some.")
+            .register(meterRegistry);
+        this.indexedCounter = documentCounter(meterRegistry, "indexed");
+        this.deletedCounter = documentCounter(meterRegistry, "deleted");
+        this.failedCounter = documentCounter(meterRegistry, "failed");
+        this.bulkTimer =
+            Timer
+                .builder(BULK_METER_NAME)
+                .description("Indicates the time spent sending the users to Elasticsearch.")
+                .register(meterRegistry);
+    }
+
+    private static Counter documentCounter(MeterRegistry meterRegistry, String result) {
+        return Counter
+            .builder(DOCUMENTS_METER_NAME)
+            .baseUnit("users")
+            .description("Users sent to Elasticsearch, by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private double lagMillis() {
+        long oldest = oldestTaskMillis.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    /**
+     * Enqueue the user to be indexed once the current transaction commits. Must be called in the transaction changing
+     * or deleting the user.
+     *
+     * @param user the user, with its id.
+     */
+    public void enqueue(User user) {
+        enqueue(List.of(user.getId()));
+    }
+
+    /**
+     * Enqueue the users to be indexed once the current transaction commits.
+     *
+     * @param userIds the ids of the users.
+     */
+    public void enqueue(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<UserIndexTask> tasks = userIds
+            .stream()
+            .map(userId -> {
+                UserIndexTask task = new UserIndexTask();
+                task.setUserId(userId);
+                task.setEnqueuedDate(now);
+                task.setNextAttemptDate(now);
+                return task;
+            })
+            .collect(Collectors.toList());
+        userIndexTaskRepository.saveAll(tasks);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        onCommit(tasks.size());
+                    }
+                }
+            );
+        } else {
+            onCommit(tasks.size());
+        }
+    }
+
+    private void onCommit(int tasks) {
+        // only the changes filling the batch trigger a flush, the next ones wait for it
+        int before = committed.getAndAdd(tasks);
+        if (before < indexing.getBatchSize() && before + tasks >= indexing.getBatchSize()) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Flush the queue right away, once the reindex which held it back completed.
+     */
+    public void resume() {
+        executor.execute(this::flush);
+    }
+
+    /**
+     * Flush the queue if changes committed on this node since the last flush.
+     */
+    @Scheduled(
+        initialDelayString = "${application.search.indexing.flush-interval-ms:1000}",
+        fixedDelayString = "${application.search.indexing.flush-interval-ms:1000}"
+    )
+    public void flushCommitted() {
+        if (committed.get() > 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Flush the queue whatever the changes of this node, and refresh its gauges.
+     */
+    @Scheduled(
+        initialDelayString = "${application.search.indexing.poll-interval-ms:60000}",
+        fixedDelayString = "${application.search.indexing.poll-interval-ms:60000}"
+    )
+    public void poll() {
+        flush(true);
+    }
+
+    /**
+     * Index the users of the tasks which are due, batch after batch.
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    private void flush(boolean refreshGauges) {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            boolean claimed = false;
+            BatchResult result;
+            do {
+                committed.set(0);
+                result = flushBatch();
+                claimed |= result != BatchResult.EMPTY;
+            } while (result == BatchResult.FULL);
+            // unchanged by this node otherwise
+            if (claimed || refreshGauges) {
+                queueSize.set(userIndexTaskRepository.count());
+                oldestTaskMillis.set(
+                    userIndexTaskRepository
+                        .findFirstByOrderByEnqueuedDateAsc()
+                        .map(task -> task.getEnqueuedDate().toEpochMilli())
+                        .orElse(0L)
+                );
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read the user indexing queue: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether tasks were claimed, and whether there may be more tasks due.
+     */
+    private BatchResult flushBatch() {
+        Instant now = Instant.now();
+        int batchSize = Math.max(1, indexing.getBatchSize());
+        // identifies the tasks claimed by this batch
+        String lockedBy = UUID.randomUUID().toString();
+        List<UserIndexTask> tasks = writeTransaction.execute(status -> claim(now, lockedBy, batchSize));
+        if (tasks == null || tasks.isEmpty()) {
+            return BatchResult.EMPTY;
+        }
+        Set<UUID> userIds = tasks.stream().map(UserIndexTask::getUserId).collect(Collectors.toCollection(LinkedHashSet::new));
+        // read after the tasks are claimed, so at least as recent as the changes which enqueued them
+        List<User> users = readTransaction.execute(status -> userRepository.findAllWithAuthoritiesByIdIn(userIds));
+        Set<UUID> deletedIds = new LinkedHashSet<>(userIds);
+        users.forEach(user -> deletedIds.remove(user.getId()));
+
+        Set<UUID> failedIds = bulkTimer.record(() -> send(users, deletedIds));
+        indexedCounter.increment(users.stream().filter(user -> !failedIds.contains(user.getId())).count());
+        deletedCounter.increment(deletedIds.stream().filter(id -> !failedIds.contains(id)).count());
+        failedCounter.increment(failedIds.size());
+
+        writeTransaction.executeWithoutResult(status -> {
+            // the tasks still claimed by this batch, unless its lease expired and another node claimed them again
+            List<UserIndexTask> claimedTasks = userIndexTaskRepository.findAllByLockedBy(lockedBy);
+            List<Long> doneTaskIds = claimedTasks
+                .stream()
+                .filter(task -> !failedIds.contains(task.getUserId()))
+                .map(UserIndexTask::getId)
+                .collect(Collectors.toList());
+            if (!doneTaskIds.isEmpty()) {
+                userIndexTaskRepository.deleteAllByIdInBatch(doneTaskIds);
+            }
+            List<UserIndexTask> failedTasks = claimedTasks
+                .stream()
+                .filter(task -> failedIds.contains(task.getUserId()))
+                .collect(Collectors.toList());
+            failedTasks.forEach(task -> {
+                task.setAttempts(task.getAttempts() + 1);
+                task.setNextAttemptDate(now.plus(retryDelay(task.getAttempts())));
+                task.setLockedBy(null);
+                task.setLockedUntil(null);
+            });
+            userIndexTaskRepository.saveAll(failedTasks);
+        });
+        return failedIds.isEmpty() && userIds.size() == batchSize ? BatchResult.FULL : BatchResult.PARTIAL;
+    }
+
+    /**
+     * Claim the tasks due of a batch of users, which no other node indexes meanwhile. All the tasks due of a user are
+     * claimed together, so that the user is indexed by one node at a time and never overwritten by an older read.
+     *
+     * @return the tasks claimed.
+     */
+    private List<UserIndexTask> claim(Instant now, String lockedBy, int batchSize) {
+        List<UUID> userIds = userIndexTaskRepository.findAllUserIdsToIndex(now, PageRequest.of(0, batchSize));
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        userIndexTaskRepository.claim(userIds, now, lockedBy, now.plusSeconds(indexing.getLeaseSeconds()));
+        return userIndexTaskRepository.findAllByLockedBy(lockedBy);
+    }
+
+    /**
+     * Send the users to Elasticsearch.
+     *
+     * @param users the users to index.
+     * @param deletedIds the ids of the users to delete from the index.
+     * @return the ids of the users which could not be indexed or deleted.
+     */
+    private Set<UUID> send(List<User> users, Set<UUID> deletedIds) {
+        Set<UUID> failedIds = new HashSet<>();
+        if (!users.isEmpty()) {
+            try {
+                userSearchRepository.saveAll(users);
+            } catch (BulkFailureException e) {
+                log.warn("Could not index {} of {} users: {}", e.getFailedDocuments().size(), users.size(), e.getMessage());
+                e.getFailedDocuments().keySet().forEach(id -> failedIds.add(UUID.fromString(id)));
+            } catch (RuntimeException e) {
+                log.warn("Could not index {} users: {}", users.size(), e.getMessage());
+                users.forEach(user -> failedIds.add(user.getId()));
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            try {
+                userSearchRepository.deleteAllById(deletedIds);
+            } catch (RuntimeException e) {
+                log.warn("Could not delete {} users from the index: {}", deletedIds.size(), e.getMessage());
+                failedIds.addAll(deletedIds);
+            }
+        }
+        return failedIds;
+    }
+
+    private Duration retryDelay(int attempts) {
+        long delaySeconds = indexing.getRetryInitialDelaySeconds() << Math.min(attempts - 1, MAX_BACKOFF_EXPONENT);
+        return Duration.ofSeconds(Math.min(delaySeconds, indexing.getRetryMaxDelaySeconds()));
+    }
+
+    private enum BatchResult {
+        /** No task was due, or they were claimed by another node. */
+        EMPTY,
+        /** The batch was not full, or some of its users could not be indexed. */
+        PARTIAL,
+        /** The batch was full and all its users were indexed: there may be more tasks due. */
+        FULL
+    }
+}
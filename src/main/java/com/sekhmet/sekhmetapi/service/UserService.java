@@ -6,26 +6,41 @@ import com.sekhmet.sekhmetapi.config.Constants;
 import com.sekhmet.sekhmetapi.domain.Authority;
 import com.sekhmet.sekhmetapi.domain.User;
 import com.sekhmet.sekhmetapi.repository.AuthorityRepository;
+import com.sekhmet.sekhmetapi.repository.UserKeysetRepository;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
 import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
 import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import com.sekhmet.sekhmetapi.security.DomainUserDetailsService;
 import com.sekhmet.sekhmetapi.security.SecurityUtils;
+import com.sekhmet.sekhmetapi.security.jwt.TokenEpochStore;
+import com.sekhmet.sekhmetapi.service.cache.CacheInvalidator;
+import com.sekhmet.sekhmetapi.service.cache.UserCache;
 import com.sekhmet.sekhmetapi.service.dto.AdminUserDTO;
+import com.sekhmet.sekhmetapi.service.dto.CursorPage;
 import com.sekhmet.sekhmetapi.service.dto.UserDTO;
 import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.utils.KeysetCursor;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import tech.jhipster.security.RandomUtil;
@@ -42,33 +57,46 @@ public class UserService {
     public static final String ACCOUNT_USER_PROFIL_PICTURE = "account/user-profil-picture";
     public static final String KEY_FORMAT = ACCOUNT_USER_PROFIL_PICTURE + "/%s/%s";
 
+    private static final String UNUSABLE_PASSWORD_PREFIX = "!phone!";
+    private static final int PASSWORD_HASH_LENGTH = 60;
+
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
     private final UserSearchRepository userSearchRepository;
 
+    private final UserSearchIndexer userSearchIndexer;
+
     private final AuthorityRepository authorityRepository;
     private final S3Service s3Service;
-    private final CacheManager cacheManager;
-    private final String password;
+    private final CacheInvalidator cacheInvalidator;
+    private final UserCache userCache;
+    private final TokenEpochStore tokenEpochStore;
+    private final ApplicationProperties applicationProperties;
 
     public UserService(
         UserRepository userRepository,
         PasswordEncoder passwordEncoder,
         UserSearchRepository userSearchRepository,
+        UserSearchIndexer userSearchIndexer,
         AuthorityRepository authorityRepository,
-        CacheManager cacheManager,
-        ApplicationProperties applicationProperties,
-        S3Service s3Service
+        CacheInvalidator cacheInvalidator,
+        UserCache userCache,
+        S3Service s3Service,
+        TokenEpochStore tokenEpochStore,
+        ApplicationProperties applicationProperties
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.userSearchRepository = userSearchRepository;
+        this.userSearchIndexer = userSearchIndexer;
         this.authorityRepository = authorityRepository;
-        this.cacheManager = cacheManager;
+        this.cacheInvalidator = cacheInvalidator;
+        this.userCache = userCache;
         this.s3Service = s3Service;
-        password = applicationProperties.getSms().getPasswordPhoneNumberSecret();
+        this.tokenEpochStore = tokenEpochStore;
+        this.applicationProperties = applicationProperties;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -79,7 +107,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
-                userSearchRepository.save(user);
+                userSearchIndexer.enqueue(user);
                 this.clearUserCaches(user);
                 log.debug("Activated user: {}", user);
                 return user;
@@ -95,20 +123,24 @@ public class UserService {
         managedUserVM.setPhoneNumber(request.getPhoneNumber());
         managedUserVM.setLangKey(request.getLangKey());
         managedUserVM.setEmail(String.format("user.%s@mail.com", phoneLogin));
-        return registerUser(managedUserVM, buildPhoneLoginPassword(phoneLogin), true);
+        // phone users authenticate through their verified phone number, so their password is never checked
+        return registerUserWithEncryptedPassword(managedUserVM, unusablePassword(), true);
     }
 
-    public String buildPhoneLogin(CheckPhoneVerificationRequest request) {
-        return request.getPhoneNumber().replace("+", "");
+    /**
+     * A placeholder which is not a BCrypt hash, so that it never matches any password.
+     */
+    private String unusablePassword() {
+        return UNUSABLE_PASSWORD_PREFIX + RandomStringUtils.randomAlphanumeric(PASSWORD_HASH_LENGTH - UNUSABLE_PASSWORD_PREFIX.length());
     }
 
-    public String buildPhoneLoginPassword(String phoneLogin) {
-        return String.format("sekhmetPhoneLoginPassword%s%s", phoneLogin, password);
+    public String buildPhoneLogin(CheckPhoneVerificationRequest request) {
+        return request.getPhoneNumber().replace("+", "");
     }
 
     public Optional<User> getUserByPhoneNumber(String phoneNumber) {
         log.debug("Get user by phoneNumber {}", phoneNumber);
-        return userRepository.findOneByPhoneNumber(phoneNumber);
+        return userCache.findOneWithAuthoritiesByPhoneNumber(phoneNumber);
     }
 
     public Optional<User> completePasswordReset(String newPassword, String key) {
@@ -120,6 +152,7 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
+                tokenEpochStore.revoke(user.getLogin());
                 this.clearUserCaches(user);
                 return user;
             });
@@ -138,6 +171,10 @@ public class UserService {
     }
 
     public User registerUser(AdminUserDTO userDTO, String password, boolean activate) {
+        return registerUserWithEncryptedPassword(userDTO, passwordEncoder.encode(password), activate);
+    }
+
+    private User registerUserWithEncryptedPassword(AdminUserDTO userDTO, String encryptedPassword, boolean activate) {
         userRepository
             .findOneByLogin(userDTO.getLogin().toLowerCase())
             .ifPresent(existingUser -> {
@@ -155,7 +192,6 @@ public class UserService {
                 }
             });
         User newUser = new User();
-        String encryptedPassword = passwordEncoder.encode(password);
         newUser.setLogin(userDTO.getLogin().toLowerCase());
         // new user gets initially a generated password
         newUser.setPassword(encryptedPassword);
@@ -176,7 +212,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
-        userSearchRepository.save(newUser);
+        userSearchIndexer.enqueue(newUser);
         this.clearUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
@@ -188,6 +224,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        userSearchIndexer.enqueue(existingUser);
         this.clearUserCaches(existingUser);
         return true;
     }
@@ -222,7 +259,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
-        userSearchRepository.save(user);
+        userSearchIndexer.enqueue(user);
         this.clearUserCaches(user);
         log.debug("Created Information for User: {}", user);
         return user;
@@ -241,7 +278,12 @@ public class UserService {
             .map(Optional::get)
             .map(user -> {
                 this.clearUserCaches(user);
-                user.setLogin(userDTO.getLogin().toLowerCase());
+                String login = userDTO.getLogin().toLowerCase();
+                if ((user.isActivated() && !userDTO.isActivated()) || !user.getLogin().equals(login)) {
+                    // the tokens of a deactivated or renamed user must not be accepted anymore
+                    tokenEpochStore.revoke(user.getLogin());
+                }
+                user.setLogin(login);
                 user.setFirstName(userDTO.getFirstName());
                 user.setLastName(userDTO.getLastName());
                 if (userDTO.getEmail() != null) {
@@ -259,7 +301,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
-                userSearchRepository.save(user);
+                userSearchIndexer.enqueue(user);
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
@@ -272,7 +314,8 @@ public class UserService {
             .findOneByLogin(login)
             .ifPresent(user -> {
                 userRepository.delete(user);
-                userSearchRepository.delete(user);
+                userSearchIndexer.enqueue(user);
+                tokenEpochStore.revoke(user.getLogin());
                 this.clearUserCaches(user);
                 log.debug("Deleted User: {}", user);
             });
@@ -292,6 +335,8 @@ public class UserService {
             .getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
             .ifPresent(user -> {
+                // the previous email must not resolve to the user anymore
+                this.clearUserCaches(user);
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
                 if (email != null) {
@@ -299,7 +344,7 @@ public class UserService {
                 }
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
-                userSearchRepository.save(user);
+                userSearchIndexer.enqueue(user);
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
             });
@@ -317,6 +362,7 @@ public class UserService {
                 }
                 String encryptedPassword = passwordEncoder.encode(newPassword);
                 user.setPassword(encryptedPassword);
+                tokenEpochStore.revoke(user.getLogin());
                 this.clearUserCaches(user);
                 log.debug("Changed password for User: {}", user);
             });
@@ -329,30 +375,159 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Page<UserDTO> getAllPublicUsers(Pageable pageable) {
-        return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDTO::new);
+        return userRepository.findAllPublicUsers(pageable);
+    }
+
+    /**
+     * Get a page of the users after a cursor, without counting them.
+     *
+     * @param sort the sort of the users, to which the id is added to break ties.
+     * @param cursor the cursor of the page, as returned with the previous page, or empty for the first page.
+     * @param size the size of the page.
+     * @return the page.
+     * @throws IllegalArgumentException if the cursor is invalid, or was returned for another sort.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<AdminUserDTO> getAllManagedUsers(Sort sort, String cursor, int size) {
+        Sort keysetSort = keysetSort(sort);
+        List<UserKeysetRepository.Positioned<AdminUserDTO>> users = userRepository
+            .findAllAfter(keysetSort, positionOf(cursor, keysetSort), false, size + 1)
+            .stream()
+            .map(user -> new UserKeysetRepository.Positioned<>(new AdminUserDTO(user), userRepository.positionOf(user, keysetSort)))
+            .collect(Collectors.toList());
+        return cursorPage(users, keysetSort, size);
+    }
+
+    /**
+     * Get a page of the activated users after a cursor, without counting them.
+     *
+     * @param sort the sort of the users, to which the id is added to break ties.
+     * @param cursor the cursor of the page, as returned with the previous page, or empty for the first page.
+     * @param size the size of the page.
+     * @return the page.
+     * @throws IllegalArgumentException if the cursor is invalid, or was returned for another sort.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDTO> getAllPublicUsers(Sort sort, String cursor, int size) {
+        Sort keysetSort = keysetSort(sort);
+        return cursorPage(userRepository.findAllPublicUsersAfter(keysetSort, positionOf(cursor, keysetSort), size + 1), keysetSort, size);
+    }
+
+    private static Sort keysetSort(Sort sort) {
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id"));
+    }
+
+    /**
+     * Build a page from the users following a cursor, fetched with one more user than the size of the page, which tells
+     * whether there is a next page.
+     */
+    private static <T> CursorPage<T> cursorPage(List<UserKeysetRepository.Positioned<T>> users, Sort keysetSort, int size) {
+        List<T> values = users.stream().limit(size).map(UserKeysetRepository.Positioned::getValue).collect(Collectors.toList());
+        if (users.size() <= size) {
+            return new CursorPage<>(values, null);
+        }
+        KeysetCursor next = new KeysetCursor(keysetSort, users.get(size - 1).getPosition());
+        return new CursorPage<>(values, next.encode());
+    }
+
+    private static List<Object> positionOf(String cursor, Sort sort) {
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        if (!position.getSort().equals(sort)) {
+            throw new IllegalArgumentException("The cursor was not returned for the sort " + sort);
+        }
+        return position.getValues();
+    }
+
+    /**
+     * Search the users matching a query string in Elasticsearch, by page number.
+     *
+     * @param query the query string.
+     * @param pageable the pagination information, whose size is capped.
+     * @return the page, with the total count of the hits if they are tracked, or a slice otherwise.
+     * @throws IllegalArgumentException if the page is beyond the maximum result window.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Slice<UserDTO> searchUsers(String query, Pageable pageable) {
+        ApplicationProperties.SearchProperties search = applicationProperties.getSearch();
+        Pageable page = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), search.getMaxPageSize()), pageable.getSort());
+        if (page.getOffset() + page.getPageSize() > search.getMaxResultWindow()) {
+            throw new IllegalArgumentException("Hits beyond the first " + search.getMaxResultWindow() + " can only be read with a cursor");
+        }
+        SearchHits<User> hits = userSearchRepository.search(query, page, null, search.isTrackTotalHits());
+        List<UserDTO> users = hits.stream().map(hit -> new UserDTO(hit.getContent())).collect(Collectors.toList());
+        if (search.isTrackTotalHits()) {
+            return new PageImpl<>(users, page, hits.getTotalHits());
+        }
+        return new SliceImpl<>(users, page, users.size() == page.getPageSize());
+    }
+
+    /**
+     * Search the users matching a query string in Elasticsearch, after a cursor, without counting them.
+     *
+     * @param query the query string.
+     * @param sort the sort of the hits, by score by default, to which the id is added to break ties.
+     * @param cursor the cursor of the page, as returned with the previous page, or empty for the first page.
+     * @param size the size of the page, which is capped.
+     * @return the page.
+     * @throws IllegalArgumentException if the cursor is invalid, or was returned for another sort.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CursorPage<UserDTO> searchUsers(String query, Sort sort, String cursor, int size) {
+        Sort searchSort = sort.isSorted() ? sort : Sort.by(Sort.Order.desc("_score"));
+        if (searchSort.getOrderFor("id") == null) {
+            searchSort = searchSort.and(Sort.by("id"));
+        }
+        int pageSize = Math.min(size, applicationProperties.getSearch().getMaxPageSize());
+        // one more hit tells whether there is a next page
+        List<SearchHit<User>> hits = userSearchRepository
+            .search(query, PageRequest.of(0, pageSize + 1, searchSort), positionOf(cursor, searchSort), false)
+            .getSearchHits();
+        List<UserDTO> users = hits.stream().limit(pageSize).map(hit -> new UserDTO(hit.getContent())).collect(Collectors.toList());
+        if (hits.size() <= pageSize) {
+            return new CursorPage<>(users, null);
+        }
+        return new CursorPage<>(users, new KeysetCursor(searchSort, hits.get(pageSize - 1).getSortValues()).encode());
     }
 
     @Transactional(readOnly = true)
     public Page<UserDTO> getAllPublicUsers(String search, Pageable pageable) {
         if (StringUtils.isBlank(search)) {
-            return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDTO::new);
+            return userRepository.findAllPublicUsers(pageable);
         }
-        return userRepository.findAllByFirstNameOrLastNameOrEmailOrPhone(search.toLowerCase(), pageable).map(UserDTO::new);
+        if (applicationProperties.getSearch().isElasticsearch()) {
+            return userSearchRepository.searchPublicUsers(search, pageable).map(UserDTO::new);
+        }
+        return userRepository.findAllPublicUsersBySearch(search.toLowerCase(), pageable);
     }
 
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
-        return userRepository.findOneWithAuthoritiesByLogin(login);
+        return userCache.findOneWithAuthoritiesByLogin(login);
     }
 
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthorities() {
-        return SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneWithAuthoritiesByLogin);
+        return SecurityUtils.getCurrentUserLogin().flatMap(userCache::findOneWithAuthoritiesByLogin);
     }
 
     @Transactional(readOnly = true)
     public Optional<User> getUserById(UUID id) {
-        return userRepository.findById(id);
+        return userCache.findById(id);
+    }
+
+    /**
+     * Get the users of the ids, with a single query for the ones which are not cached.
+     *
+     * @param ids the ids of the users.
+     * @return the users found, in the order of the ids, without duplicates.
+     */
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(Collection<UUID> ids) {
+        Map<UUID, User> users = userCache.findAllByIds(ids);
+        return ids.stream().distinct().map(users::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     /**
@@ -367,7 +542,7 @@ public class UserService {
             .forEach(user -> {
                 log.debug("Deleting not activated user {}", user.getLogin());
                 userRepository.delete(user);
-                userSearchRepository.delete(user);
+                userSearchIndexer.enqueue(user);
                 this.clearUserCaches(user);
             });
     }
@@ -383,9 +558,10 @@ public class UserService {
     }
 
     private void clearUserCaches(User user) {
-        Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).evict(user.getLogin());
+        userCache.evict(user);
+        cacheInvalidator.evict(DomainUserDetailsService.USER_DETAILS_CACHE, DomainUserDetailsService.loginCacheKey(user.getLogin()));
         if (user.getEmail() != null) {
-            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).evict(user.getEmail());
+            cacheInvalidator.evict(DomainUserDetailsService.USER_DETAILS_CACHE, DomainUserDetailsService.emailCacheKey(user.getEmail()));
         }
     }
 
@@ -394,13 +570,15 @@ public class UserService {
     }
 
     public Optional<User> addProfilePicture(String userLogin, MultipartFile file) {
-        Optional<User> user = userRepository.findOneByLogin(userLogin);
+        // the user is returned with its authorities, to be mapped out of the transaction
+        Optional<User> user = userRepository.findOneWithAuthoritiesByLogin(userLogin);
         return user.map(u -> {
             String key = buildMediaKey(u);
             S3Service.PutResult putResult = s3Service.putMedia(key, file);
             s3Service.deleteObject(u.getImageUrl());
             u.setImageUrl(putResult.getKey());
             User saveU = userRepository.save(u);
+            userSearchIndexer.enqueue(saveU);
             this.clearUserCaches(saveU);
             return saveU;
         });
@@ -0,0 +1,153 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * An eviction broadcast by a node to the other ones.
+ * <p>
+ * Keys can be strings, UUIDs, longs or integers, so that they are evicted with their original type by the receivers.
+ */
+public final class CacheInvalidation {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * What is evicted.
+     */
+    public enum Kind {
+        /** An entry of a Spring cache, or the whole cache when there is no key. */
+        CACHE,
+        /** An entity of the Hibernate second-level cache, the name being the entity name. */
+        ENTITY,
+        /** A collection of the Hibernate second-level cache, the name being the collection role. */
+        COLLECTION,
+        /** All the caches, when evictions may have been missed. */
+        ALL,
+    }
+
+    private final String origin;
+    private final Kind kind;
+    private final String name;
+    private final Object key;
+
+    public CacheInvalidation(String origin, Kind kind, String name, Object key) {
+        this.origin = Objects.requireNonNull(origin);
+        this.kind = Objects.requireNonNull(kind);
+        this.name = name;
+        this.key = key;
+        if (name != null && name.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Invalid cache name: " + name);
+        }
+        keyType(key);
+    }
+
+    /**
+     * @return the node which evicted the entry.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Encode the invalidation as a compact string, such as a Postgres notification payload.
+     *
+     * @return the encoded invalidation.
+     */
+    public String encode() {
+        return (
+            origin +
+            SEPARATOR +
+            kind.name() +
+            SEPARATOR +
+            (name == null ? "" : name) +
+            SEPARATOR +
+            keyType(key) +
+            SEPARATOR +
+            (key == null ? "" : key.toString())
+        );
+    }
+
+    /**
+     * Decode an invalidation encoded by {@link #encode()}.
+     *
+     * @param payload the encoded invalidation.
+     * @return the invalidation.
+     * @throws IllegalArgumentException if the payload is not a valid invalidation.
+     */
+    public static CacheInvalidation decode(String payload) {
+        // the key comes last, as it may contain the separator
+        String[] parts = payload.split("\\" + SEPARATOR, 5);
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Invalid cache invalidation: " + payload);
+        }
+        String name = parts[2].isEmpty() ? null : parts[2];
+        return new CacheInvalidation(parts[0], Kind.valueOf(parts[1]), name, parseKey(parts[3], parts[4]));
+    }
+
+    private static String keyType(Object key) {
+        if (key == null) {
+            return "";
+        } else if (key instanceof String) {
+            return "s";
+        } else if (key instanceof UUID) {
+            return "u";
+        } else if (key instanceof Long) {
+            return "l";
+        } else if (key instanceof Integer) {
+            return "i";
+        }
+        throw new IllegalArgumentException("Unsupported cache key type: " + key.getClass().getName());
+    }
+
+    private static Object parseKey(String type, String key) {
+        switch (type) {
+            case "":
+                return null;
+            case "s":
+                return key;
+            case "u":
+                return UUID.fromString(key);
+            case "l":
+                return Long.valueOf(key);
+            case "i":
+                return Integer.valueOf(key);
+            default:
+                throw new IllegalArgumentException("Unsupported cache key type: " + type);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheInvalidation)) {
+            return false;
+        }
+        CacheInvalidation that = (CacheInvalidation) o;
+        return origin.equals(that.origin) && kind == that.kind && Objects.equals(name, that.name) && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(origin, kind, name, key);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation{origin='" + origin + "', kind=" + kind + ", name='" + name + "', key=" + key + "}";
+    }
+}
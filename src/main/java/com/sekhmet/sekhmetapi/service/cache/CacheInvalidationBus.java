@@ -0,0 +1,25 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts the {@link CacheInvalidation}s between the nodes.
+ * <p>
+ * Invalidations published in a transaction are only delivered once it commits. Every subscriber receives all the
+ * invalidations, including the ones of its own node: it is up to it to skip them.
+ */
+public interface CacheInvalidationBus {
+    /**
+     * Broadcast an invalidation to all the nodes.
+     *
+     * @param invalidation the invalidation.
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Register a subscriber, called with every invalidation received.
+     *
+     * @param subscriber the subscriber.
+     */
+    void subscribe(Consumer<CacheInvalidation> subscriber);
+}
@@ -0,0 +1,193 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts cache entries on every node, through the {@link CacheInvalidationBus}.
+ * <p>
+ * Entries are evicted from the local caches right away, and from the caches of the other nodes once the current
+ * transaction commits. They are evicted from the local caches again once it commits, as a concurrent miss may have
+ * cached the rows being changed meanwhile.
+ */
+@Service
+@Slf4j
+public class CacheInvalidator {
+
+    public static final String INVALIDATIONS_METER_NAME = "cache.invalidations";
+
+    // identifies the invalidations of this node, which the bus also delivers to it
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final CacheManager cacheManager;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Counter publishedCounter;
+
+    private final Counter appliedCounter;
+
+    private final Map<String, SingleFlightCache> singleFlightCaches = new ConcurrentHashMap<>();
+
+    public CacheInvalidator(
+        CacheManager cacheManager,
+        CacheInvalidationBus cacheInvalidationBus,
+        EntityManagerFactory entityManagerFactory,
+        MeterRegistry meterRegistry
+    ) {
+        this.cacheManager = cacheManager;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.entityManagerFactory = entityManagerFactory;
+        this.publishedCounter =
+            Counter
+                .builder(INVALIDATIONS_METER_NAME)
+                .baseUnit("invalidations")
+                .description("Cache invalidations sent to the other nodes")
+                .tag("direction", "published")
+                .register(meterRegistry);
+        this.appliedCounter =
+            Counter
+                .builder(INVALIDATIONS_METER_NAME)
+                .baseUnit("invalidations")
+                .description("Cache invalidations received from the other nodes")
+                .tag("direction", "applied")
+                .register(meterRegistry);
+        cacheInvalidationBus.subscribe(this::apply);
+    }
+
+    /**
+     * Evict the entries of the cache through the {@link SingleFlightCache} loading them, so that the values being
+     * loaded while they are evicted are not cached.
+     *
+     * @param singleFlightCache the single-flight cache.
+     */
+    public void register(SingleFlightCache singleFlightCache) {
+        singleFlightCaches.put(singleFlightCache.getName(), singleFlightCache);
+    }
+
+    /**
+     * Evict an entry of a Spring cache on all the nodes.
+     *
+     * @param cacheName the name of the cache.
+     * @param key the key of the entry.
+     */
+    public void evict(String cacheName, Object key) {
+        evictLocally(cacheName, key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        evictLocally(cacheName, key);
+                    }
+                }
+            );
+        }
+        // delivered to the other nodes once the transaction commits
+        publish(CacheInvalidation.Kind.CACHE, cacheName, key);
+    }
+
+    /**
+     * Evict an entity from the Hibernate second-level cache of the other nodes. Hibernate already keeps the local one
+     * up to date.
+     *
+     * @param entityClass the class of the entity.
+     * @param id the id of the entity.
+     */
+    public void evictEntity(Class<?> entityClass, Object id) {
+        publish(CacheInvalidation.Kind.ENTITY, entityClass.getName(), id);
+    }
+
+    /**
+     * Evict a collection from the Hibernate second-level cache of the other nodes.
+     *
+     * @param role the role of the collection, such as {@code com.example.User.authorities}.
+     * @param ownerId the id of the entity owning the collection.
+     */
+    public void evictCollection(String role, Object ownerId) {
+        publish(CacheInvalidation.Kind.COLLECTION, role, ownerId);
+    }
+
+    private void publish(CacheInvalidation.Kind kind, String name, Object key) {
+        cacheInvalidationBus.publish(new CacheInvalidation(nodeId, kind, name, key));
+        publishedCounter.increment();
+    }
+
+    void apply(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        log.debug("Applying {}", invalidation);
+        switch (invalidation.getKind()) {
+            case CACHE:
+                if (invalidation.getKey() == null) {
+                    clearLocally(invalidation.getName());
+                } else {
+                    evictLocally(invalidation.getName(), invalidation.getKey());
+                }
+                break;
+            case ENTITY:
+                // without a key when it was too long for the bus
+                if (invalidation.getKey() == null) {
+                    hibernateCache().evictEntityData(invalidation.getName());
+                } else {
+                    hibernateCache().evictEntityData(invalidation.getName(), (Serializable) invalidation.getKey());
+                }
+                break;
+            case COLLECTION:
+                if (invalidation.getKey() == null) {
+                    hibernateCache().evictCollectionData(invalidation.getName());
+                } else {
+                    hibernateCache().evictCollectionData(invalidation.getName(), (Serializable) invalidation.getKey());
+                }
+                break;
+            case ALL:
+                cacheManager.getCacheNames().forEach(this::clearLocally);
+                hibernateCache().evictAllRegions();
+                break;
+        }
+        appliedCounter.increment();
+    }
+
+    private void evictLocally(String cacheName, Object key) {
+        SingleFlightCache singleFlightCache = singleFlightCaches.get(cacheName);
+        if (singleFlightCache != null) {
+            singleFlightCache.evict(key);
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clearLocally(String cacheName) {
+        SingleFlightCache singleFlightCache = singleFlightCaches.get(cacheName);
+        if (singleFlightCache != null) {
+            singleFlightCache.clear();
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private org.hibernate.Cache hibernateCache() {
+        javax.persistence.Cache cache = entityManagerFactory.getCache();
+        return cache instanceof org.hibernate.Cache ? (org.hibernate.Cache) cache : cache.unwrap(org.hibernate.Cache.class);
+    }
+}
@@ -0,0 +1,209 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CacheInvalidationBus} relying on the {@code LISTEN}/{@code NOTIFY} of the Postgres database shared by the nodes.
+ * <p>
+ * The notifications are sent on the connection of the current transaction, so Postgres only delivers them once it
+ * commits. They are received on a dedicated connection, outside of the pool: when it is lost, the notifications sent
+ * in the meantime are missed, so all the caches are cleared once it is back.
+ * <p>
+ * An invalidation too long for a notification is sent without its key, so that the other nodes clear the whole cache.
+ * It is logged and counted, as a long key then flushes a cache on every node.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache.invalidation", name = "bus", havingValue = "postgres")
+@Slf4j
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+
+    public static final String WIDENED_INVALIDATIONS_METER_NAME = "cache.invalidations.widened";
+
+    static final String RECONNECTION_ORIGIN = "reconnection";
+
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    // payloads must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_LENGTH = 7999;
+
+    private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final String channel;
+
+    private final int pollTimeoutMs;
+
+    private final long reconnectDelayMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    public PostgresCacheInvalidationBus(
+        JdbcTemplate jdbcTemplate,
+        DataSourceProperties dataSourceProperties,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.CacheProperties.Invalidation invalidation = applicationProperties.getCache().getInvalidation();
+        if (!CHANNEL_PATTERN.matcher(invalidation.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel: " + invalidation.getChannel());
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = invalidation.getChannel();
+        // a timeout of 0 would wait for a notification forever
+        this.pollTimeoutMs = (int) Math.max(1, invalidation.getPollTimeoutMs());
+        this.reconnectDelayMs = invalidation.getReconnectDelayMs();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        String payload = invalidation.encode();
+        int length = payload.getBytes(StandardCharsets.UTF_8).length;
+        if (length > MAX_PAYLOAD_LENGTH) {
+            log.warn(
+                "Cache invalidation of {} {} is {} bytes long, over the notification limit: clearing it on the other nodes",
+                invalidation.getKind(),
+                invalidation.getName(),
+                length
+            );
+            widenedCounter(invalidation).increment();
+            payload = new CacheInvalidation(invalidation.getOrigin(), invalidation.getKind(), invalidation.getName(), null).encode();
+        }
+        String notification = payload;
+        jdbcTemplate.execute(
+            "SELECT pg_notify(?, ?)",
+            (PreparedStatementCallback<Boolean>) statement -> {
+                statement.setString(1, channel);
+                statement.setString(2, notification);
+                return statement.execute();
+            }
+        );
+    }
+
+    private Counter widenedCounter(CacheInvalidation invalidation) {
+        return Counter
+            .builder(WIDENED_INVALIDATIONS_METER_NAME)
+            .baseUnit("invalidations")
+            .description("Cache invalidations sent without their key, too long for a notification, clearing the whole cache")
+            .tag("kind", invalidation.getKind().name().toLowerCase())
+            .tag("name", String.valueOf(invalidation.getName()))
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        listener.join(pollTimeoutMs + 1000L);
+    }
+
+    private void listen() {
+        boolean reconnection = false;
+        while (running) {
+            try (Connection connection = connect()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.debug("Listening to the cache invalidations on channel {}", channel);
+                if (reconnection) {
+                    deliver(new CacheInvalidation(RECONNECTION_ORIGIN, CacheInvalidation.Kind.ALL, null, null));
+                }
+                reconnection = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the cache invalidations connection, reconnecting in {} ms: {}", reconnectDelayMs, e.getMessage());
+                    sleepBeforeReconnection();
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword()
+        );
+    }
+
+    private void sleepBeforeReconnection() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void receive(String payload) {
+        CacheInvalidation invalidation;
+        try {
+            invalidation = CacheInvalidation.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring an invalid cache invalidation: {}", e.getMessage());
+            return;
+        }
+        deliver(invalidation);
+    }
+
+    private void deliver(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> subscriber : subscribers) {
+            try {
+                subscriber.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Could not apply {}: {}", invalidation, e.getMessage());
+            }
+        }
+    }
+}
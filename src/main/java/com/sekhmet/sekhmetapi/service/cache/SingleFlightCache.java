@@ -0,0 +1,267 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Loads the missing entries of a {@link Cache} once per key: concurrent callers missing the same key wait for the
+ * load of the first one instead of running the same query.
+ * <p>
+ * Hot entries are refreshed before they expire, with a probability growing as the expiry gets closer and as the
+ * load gets slower (probabilistic early expiration, or XFetch). The caller refreshing an entry does so while the other
+ * ones keep reading the current value, so that a popular entry never misses under load.
+ * <p>
+ * Each eviction bumps a generation of the cache, and a value loaded while it changed is evicted again once put: it may
+ * have been read before the change which caused the eviction. The generation is shared by all the keys, so that the
+ * values loaded along with another key are covered too, at the cost of a few extra misses while entries are evicted.
+ * The evictions must go through {@link #evict(Object)} or {@link #clear()}, which {@link CacheInvalidator} does for
+ * the caches {@link CacheInvalidator#register(SingleFlightCache) registered} to it.
+ */
+public class SingleFlightCache {
+
+    public static final String SINGLE_FLIGHT_METER_NAME = "cache.single-flight";
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Cache cache;
+
+    private final long timeToLiveMillis;
+
+    private final double beta;
+
+    private final boolean cacheMissingValues;
+
+    private final LongSupplier clock;
+
+    private final Counter hitCounter;
+
+    private final Counter loadCounter;
+
+    private final Counter coalescedCounter;
+
+    private final Counter earlyRefreshCounter;
+
+    /**
+     * @param cache the cache storing the entries.
+     * @param timeToLive the time to live of the entries in the cache, or {@code null} if they don't expire at a fixed
+     *                   time, in which case they are never refreshed early.
+     * @param beta how early the entries are refreshed, {@code 1} being the usual value and {@code 0} disabling it.
+     * @param cacheMissingValues whether the {@code null} values returned by the loaders are cached too, which spares
+     *                           the lookups of missing keys but hides the keys created since then until they expire.
+     * @param meterRegistry the registry of the meters.
+     */
+    public SingleFlightCache(Cache cache, Duration timeToLive, double beta, boolean cacheMissingValues, MeterRegistry meterRegistry) {
+        this(cache, timeToLive, beta, cacheMissingValues, meterRegistry, System::currentTimeMillis);
+    }
+
+    SingleFlightCache(
+        Cache cache,
+        Duration timeToLive,
+        double beta,
+        boolean cacheMissingValues,
+        MeterRegistry meterRegistry,
+        LongSupplier clock
+    ) {
+        this.cache = cache;
+        this.timeToLiveMillis = timeToLive != null ? timeToLive.toMillis() : 0;
+        this.beta = timeToLive != null ? beta : 0;
+        this.cacheMissingValues = cacheMissingValues;
+        this.clock = clock;
+        this.hitCounter = counter(meterRegistry, cache.getName(), "hit");
+        this.loadCounter = counter(meterRegistry, cache.getName(), "load");
+        this.coalescedCounter = counter(meterRegistry, cache.getName(), "coalesced");
+        this.earlyRefreshCounter = counter(meterRegistry, cache.getName(), "early-refresh");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String cacheName, String result) {
+        return Counter
+            .builder(SINGLE_FLIGHT_METER_NAME)
+            .baseUnit("lookups")
+            .description("Lookups of the single-flight caches, by result")
+            .tags("cache", cacheName, "result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the name of the underlying cache.
+     */
+    public String getName() {
+        return cache.getName();
+    }
+
+    /**
+     * Get the value of the key, loading it if it is missing or about to expire.
+     *
+     * @param key the key.
+     * @param loader the loader of the value, which may return {@code null}: missing values are cached too, unless
+     *               disabled for this cache.
+     * @param <T> the type of the value.
+     * @return the value, or {@code null}.
+     * @throws RuntimeException if the loader failed, for all the callers waiting on it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> loader) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        Object cached = wrapper != null ? wrapper.get() : null;
+        if (cached instanceof Entry) {
+            Entry entry = (Entry) cached;
+            if (!shouldRefresh(entry)) {
+                hitCounter.increment();
+                return (T) entry.value;
+            }
+            CompletableFuture<Object> refresh = new CompletableFuture<>();
+            if (loads.putIfAbsent(key, refresh) != null) {
+                // already being refreshed: the current value is still valid
+                hitCounter.increment();
+                return (T) entry.value;
+            }
+            earlyRefreshCounter.increment();
+            return (T) load(key, loader, refresh);
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loads.putIfAbsent(key, load);
+        if (existing != null) {
+            coalescedCounter.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        loadCounter.increment();
+        return (T) load(key, loader, load);
+    }
+
+    /**
+     * Get the value of the key if it is cached, without loading it.
+     *
+     * @param key the key.
+     * @return the value, which may be {@code null}, or {@code null} if the key is not cached.
+     */
+    public Cache.ValueWrapper getIfPresent(Object key) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        Object cached = wrapper != null ? wrapper.get() : null;
+        if (!(cached instanceof Entry)) {
+            return null;
+        }
+        hitCounter.increment();
+        return new SimpleValueWrapper(((Entry) cached).value);
+    }
+
+    /**
+     * Get the current generation of the cache, to read before loading values put with
+     * {@link #put(Object, Object, long)}.
+     *
+     * @return the generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Put a value loaded along with another entry.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @param generation the {@link #generation()} read before loading the value: if an entry was evicted since then,
+     *                   the value is evicted again, as it may be stale.
+     */
+    public void put(Object key, Object value, long generation) {
+        put(key, new Entry(value, 0, clock.getAsLong() + timeToLiveMillis), generation);
+    }
+
+    /**
+     * Evict the key, along with the value being loaded for it if any. Prefer
+     * {@link CacheInvalidator#evict(String, Object)}, which evicts it from all the nodes.
+     *
+     * @param key the key.
+     */
+    public void evict(Object key) {
+        // before the eviction, so that a load putting its value after it sees the change
+        generation.incrementAndGet();
+        // the next callers load the key again, rather than waiting for a value which may be stale
+        loads.remove(key);
+        cache.evict(key);
+    }
+
+    /**
+     * Evict all the keys, along with the values being loaded.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        loads.clear();
+        cache.clear();
+    }
+
+    private void put(Object key, Entry entry, long loadGeneration) {
+        cache.put(key, entry);
+        if (generation.get() != loadGeneration) {
+            // evicted while loading, possibly before the eviction completed: evicting again covers both orders
+            cache.evict(key);
+        }
+    }
+
+    private Object load(Object key, Callable<?> loader, CompletableFuture<Object> future) {
+        try {
+            long loadGeneration = generation.get();
+            long start = clock.getAsLong();
+            Object value = loader.call();
+            long now = clock.getAsLong();
+            if (value != null || cacheMissingValues) {
+                put(key, new Entry(value, now - start, now + timeToLiveMillis), loadGeneration);
+            }
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException("Could not load " + key + " in cache " + cache.getName(), e);
+        } finally {
+            loads.remove(key, future);
+        }
+    }
+
+    private boolean shouldRefresh(Entry entry) {
+        if (beta <= 0) {
+            return false;
+        }
+        // -log(random) is exponentially distributed: usually small, sometimes large enough to refresh long before expiry
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return clock.getAsLong() - entry.loadTimeMillis * beta * Math.log(random) >= entry.expiresAt;
+    }
+
+    /**
+     * A cached value, with what is needed to refresh it early.
+     */
+    static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+        private final long loadTimeMillis;
+        private final long expiresAt;
+
+        Entry(Object value, long loadTimeMillis, long expiresAt) {
+            this.value = value;
+            this.loadTimeMillis = loadTimeMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
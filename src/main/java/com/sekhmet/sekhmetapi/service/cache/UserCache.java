@@ -0,0 +1,202 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Cache of the users with their authorities, resolving them by id, login, email or phone number.
+ * <p>
+ * Each user is cached once, by id. The login, email and phone number caches only hold the id of the user, and a user
+ * resolved through them is checked to still have that key. Evicting the user by id first then makes the eviction
+ * atomic: until all its keys are evicted, a lookup by any of them either misses the user or resolves a fresh one. All
+ * the entries are loaded once per key by {@link SingleFlightCache}s.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+
+    private final CacheInvalidator cacheInvalidator;
+
+    private final SingleFlightCache usersById;
+
+    private final SingleFlightCache userIdsByLogin;
+
+    private final SingleFlightCache userIdsByEmail;
+
+    private final SingleFlightCache userIdsByPhoneNumber;
+
+    public UserCache(
+        UserRepository userRepository,
+        CacheInvalidator cacheInvalidator,
+        CacheManager cacheManager,
+        ApplicationProperties applicationProperties,
+        JHipsterProperties jHipsterProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        ApplicationProperties.CacheProperties cacheProperties = applicationProperties.getCache();
+        long defaultTimeToLiveSeconds = jHipsterProperties.getCache().getEhcache().getTimeToLiveSeconds();
+        BiFunction<String, Boolean, SingleFlightCache> singleFlightCache = (cacheName, cacheMissingValues) ->
+            new SingleFlightCache(
+                Objects.requireNonNull(cacheManager.getCache(cacheName)),
+                timeToLive(cacheProperties, cacheName, defaultTimeToLiveSeconds),
+                cacheProperties.getEarlyRefreshBeta(),
+                cacheMissingValues,
+                meterRegistry
+            );
+        this.usersById = singleFlightCache.apply(UserRepository.USERS_BY_ID_CACHE, true);
+        this.userIdsByLogin = singleFlightCache.apply(UserRepository.USERS_BY_LOGIN_CACHE, true);
+        // looked up before registering a user: a cached miss would hide the user registered by a concurrent request
+        this.userIdsByEmail = singleFlightCache.apply(UserRepository.USERS_BY_EMAIL_CACHE, false);
+        this.userIdsByPhoneNumber = singleFlightCache.apply(UserRepository.USERS_BY_PHONE_NUMBER_CACHE, false);
+        cacheInvalidator.register(usersById);
+        cacheInvalidator.register(userIdsByLogin);
+        cacheInvalidator.register(userIdsByEmail);
+        cacheInvalidator.register(userIdsByPhoneNumber);
+    }
+
+    private static Duration timeToLive(ApplicationProperties.CacheProperties cacheProperties, String cacheName, long defaultSeconds) {
+        ApplicationProperties.CacheProperties.CachePolicy policy = cacheProperties.getCaches().get(cacheName);
+        if (policy == null) {
+            return Duration.ofSeconds(defaultSeconds);
+        }
+        if (policy.getTimeToIdleSeconds() != null) {
+            // entries only expire when not read, there is nothing to refresh early
+            return null;
+        }
+        return Duration.ofSeconds(policy.getTimeToLiveSeconds() != null ? policy.getTimeToLiveSeconds() : defaultSeconds);
+    }
+
+    public Optional<User> findById(UUID id) {
+        return Optional.ofNullable(usersById.get(id, () -> userRepository.findOneWithAuthoritiesById(id).orElse(null)));
+    }
+
+    /**
+     * Get the users of the ids, reading the ones which are not cached with a single query.
+     *
+     * @param ids the ids of the users.
+     * @return the users found, by id.
+     */
+    public Map<UUID, User> findAllByIds(Collection<UUID> ids) {
+        Map<UUID, User> users = new HashMap<>();
+        Set<UUID> missingIds = new HashSet<>();
+        for (UUID id : ids) {
+            Cache.ValueWrapper cached = usersById.getIfPresent(id);
+            if (cached == null) {
+                missingIds.add(id);
+            } else if (cached.get() != null) {
+                users.put(id, (User) cached.get());
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            long generation = usersById.generation();
+            for (User user : userRepository.findAllWithAuthoritiesByIdIn(missingIds)) {
+                usersById.put(user.getId(), user, generation);
+                users.put(user.getId(), user);
+            }
+            // unlike by findById, unknown ids are not cached: clients could fill the cache with random ones
+        }
+        return users;
+    }
+
+    public Optional<User> findOneWithAuthoritiesByLogin(String login) {
+        return findByKey(userIdsByLogin, login, User::getLogin, () -> userRepository.findOneWithAuthoritiesByLogin(login));
+    }
+
+    public Optional<User> findOneWithAuthoritiesByEmail(String email) {
+        return findByKey(
+            userIdsByEmail,
+            emailKey(email),
+            user -> user.getEmail() != null ? emailKey(user.getEmail()) : null,
+            () -> userRepository.findOneWithAuthoritiesByEmailIgnoreCase(email)
+        );
+    }
+
+    public Optional<User> findOneWithAuthoritiesByPhoneNumber(String phoneNumber) {
+        return findByKey(
+            userIdsByPhoneNumber,
+            phoneNumber,
+            User::getPhoneNumber,
+            () -> userRepository.findOneWithAuthoritiesByPhoneNumber(phoneNumber)
+        );
+    }
+
+    /**
+     * Evict the user from the caches of all the nodes, under all its keys.
+     *
+     * @param user the user, with the keys it had when it was cached.
+     */
+    public void evict(User user) {
+        if (user.getId() != null) {
+            // first, so that the other keys can't resolve the cached user anymore
+            cacheInvalidator.evict(UserRepository.USERS_BY_ID_CACHE, user.getId());
+            cacheInvalidator.evictEntity(User.class, user.getId());
+            cacheInvalidator.evictCollection(User.class.getName() + ".authorities", user.getId());
+        }
+        if (user.getLogin() != null) {
+            cacheInvalidator.evict(UserRepository.USERS_BY_LOGIN_CACHE, user.getLogin());
+        }
+        if (user.getEmail() != null) {
+            cacheInvalidator.evict(UserRepository.USERS_BY_EMAIL_CACHE, emailKey(user.getEmail()));
+        }
+        if (user.getPhoneNumber() != null) {
+            cacheInvalidator.evict(UserRepository.USERS_BY_PHONE_NUMBER_CACHE, user.getPhoneNumber());
+        }
+    }
+
+    private Optional<User> findByKey(
+        SingleFlightCache userIds,
+        String key,
+        Function<User, String> keyOf,
+        Supplier<Optional<User>> loader
+    ) {
+        UUID id = userIds.get(
+            key,
+            () -> {
+                long generation = usersById.generation();
+                return loader
+                    .get()
+                    .map(user -> {
+                        usersById.put(user.getId(), user, generation);
+                        return user.getId();
+                    })
+                    .orElse(null);
+            }
+        );
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<User> user = findById(id);
+        if (user.isPresent() && key.equals(keyOf.apply(user.get()))) {
+            return user;
+        }
+        // the user changed or was deleted since it was indexed, and its eviction is not over yet
+        userIds.evict(key);
+        return loader.get();
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Cache invalidation across the nodes.
+ */
+package com.sekhmet.sekhmetapi.service.cache;
@@ -0,0 +1,36 @@
+package com.sekhmet.sekhmetapi.service.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Getter;
+
+/**
+ * A page of a keyset paginated list: unlike a {@link org.springframework.data.domain.Page}, it has no total count, only
+ * the cursor of the next page.
+ *
+ * @param <T> the type of the elements.
+ */
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+
+    /**
+     * The cursor of the next page, or {@code null} if this page is the last one.
+     */
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <U> CursorPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CursorPage<>(content.stream().map(converter).collect(Collectors.toList()), nextCursor);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sekhmet.sekhmetapi.service.dto;
+
+import java.time.Instant;
+import lombok.Getter;
+
+/**
+ * Progress of the last reindex of the users on this node.
+ */
+@Getter
+public class ReindexStatusDTO {
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final State state;
+
+    /**
+     * The index being built, or built by the last reindex.
+     */
+    private final String index;
+
+    private final Instant startedDate;
+
+    private final Instant finishedDate;
+
+    /**
+     * The number of users to index, counted when the reindex started.
+     */
+    private final long total;
+
+    private final long indexed;
+
+    private final String error;
+
+    public ReindexStatusDTO(State state, String index, Instant startedDate, Instant finishedDate, long total, long indexed, String error) {
+        this.state = state;
+        this.index = index;
+        this.startedDate = startedDate;
+        this.finishedDate = finishedDate;
+        this.total = total;
+        this.indexed = indexed;
+        this.error = error;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ReindexStatusDTO{" +
+            "state=" + state +
+            ", index='" + index + '\'' +
+            ", startedDate=" + startedDate +
+            ", finishedDate=" + finishedDate +
+            ", total=" + total +
+            ", indexed=" + indexed +
+            ", error='" + error + '\'' +
+            "}";
+    }
+}
@@ -54,6 +54,30 @@ public class UserDTO {
         this.phoneNumber = user.getPhoneNumber();
     }
 
+    /**
+     * Constructor of the {@code select new} projections of {@link com.sekhmet.sekhmetapi.repository.UserRepository},
+     * with the same attributes as {@link #UserDTO(User)}.
+     */
+    public UserDTO(
+        UUID id,
+        String login,
+        String firstName,
+        String lastName,
+        String email,
+        String imageUrl,
+        boolean activated,
+        String phoneNumber
+    ) {
+        this.id = id;
+        this.login = login;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.imageUrl = imageUrl;
+        this.activated = activated;
+        this.phoneNumber = phoneNumber;
+    }
+
     // prettier-ignore
     @Override
     public String toString() {
@@ -0,0 +1,171 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.StartPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link VerificationProvider} generating the codes in-process, so that checking a code is a memory lookup.
+ * <p>
+ * Only a keyed hash of each code is kept, until it is checked, it expires, or too many wrong codes were sent. The
+ * codes are sent through the {@link SmsGateway} bean, or logged when there is none. When enabled, this provider takes
+ * precedence over the Twilio one.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "application.sms.verification", name = "provider", havingValue = "local")
+@Slf4j
+public class LocalVerificationProvider implements VerificationProvider {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final Map<String, PendingVerification> pendingVerifications = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Mac> macs;
+
+    private final SmsGateway smsGateway;
+
+    private final MessageSource messageSource;
+
+    private final int codeLength;
+
+    private final int codeBound;
+
+    private final long timeToLiveInMilliseconds;
+
+    private final int maxAttempts;
+
+    private final int maxEntries;
+
+    public LocalVerificationProvider(
+        ApplicationProperties applicationProperties,
+        ObjectProvider<SmsGateway> smsGateway,
+        MessageSource messageSource
+    ) {
+        ApplicationProperties.SmsProperties.Verification.Local local = applicationProperties.getSms().getVerification().getLocal();
+        this.codeLength = Math.min(9, Math.max(4, local.getCodeLength()));
+        this.codeBound = (int) Math.pow(10, codeLength);
+        this.timeToLiveInMilliseconds = 1000 * local.getTimeToLiveSeconds();
+        this.maxAttempts = Math.max(1, local.getMaxAttempts());
+        this.maxEntries = Math.max(1, local.getMaxEntries());
+        this.smsGateway = smsGateway.getIfAvailable(LoggingSmsGateway::new);
+        this.messageSource = messageSource;
+        // the key only lives in memory: codes pending when the application stops can't be checked anyway
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        SecretKeySpec secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> newMac(secretKey));
+    }
+
+    @Override
+    public VerificationStatus sendVerificationCode(StartPhoneVerificationRequest request) {
+        String phoneNumber = request.getPhoneNumber();
+        String code = String.format("%0" + codeLength + "d", random.nextInt(codeBound));
+        long now = System.currentTimeMillis();
+        if (pendingVerifications.size() >= maxEntries) {
+            evict(now);
+        }
+        PendingVerification pending = new PendingVerification(hash(phoneNumber, code), now + timeToLiveInMilliseconds, maxAttempts);
+        pendingVerifications.put(phoneNumber, pending);
+
+        Locale locale = request.getLocale() != null ? Locale.forLanguageTag(request.getLocale()) : Locale.ENGLISH;
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(timeToLiveInMilliseconds);
+        String message = messageSource.getMessage("sms.verification.text", new Object[] { code, minutes }, locale);
+        try {
+            smsGateway.send(phoneNumber, message);
+        } catch (RuntimeException e) {
+            pendingVerifications.remove(phoneNumber, pending);
+            throw e;
+        }
+        log.debug("Verification code sent to {}", phoneNumber);
+        return VerificationStatus.PENDING;
+    }
+
+    @Override
+    public VerificationStatus checkVerificationCode(CheckPhoneVerificationRequest request) {
+        String phoneNumber = request.getPhoneNumber();
+        PendingVerification pending = pendingVerifications.get(phoneNumber);
+        if (pending == null) {
+            return VerificationStatus.CANCELED;
+        }
+        if (pending.expiresAt <= System.currentTimeMillis() || pending.attemptsLeft.getAndDecrement() <= 0) {
+            pendingVerifications.remove(phoneNumber, pending);
+            return VerificationStatus.CANCELED;
+        }
+        if (request.getToken() != null && MessageDigest.isEqual(pending.codeHash, hash(phoneNumber, request.getToken()))) {
+            // a code can only be used once, even by concurrent checks
+            return pendingVerifications.remove(phoneNumber, pending) ? VerificationStatus.APPROVED : VerificationStatus.CANCELED;
+        }
+        log.debug("Wrong verification code for {}", phoneNumber);
+        return VerificationStatus.PENDING;
+    }
+
+    int size() {
+        return pendingVerifications.size();
+    }
+
+    private void evict(long now) {
+        pendingVerifications.values().removeIf(pending -> pending.expiresAt <= now);
+        if (pendingVerifications.size() < maxEntries) {
+            return;
+        }
+        int toRemove = Math.max(1, pendingVerifications.size() - (maxEntries - maxEntries / 10));
+        log.warn("Too many pending verifications, canceling {} of them", toRemove);
+        Iterator<String> iterator = pendingVerifications.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private byte[] hash(String phoneNumber, String code) {
+        Mac mac = macs.get();
+        mac.update(phoneNumber.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(code.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Mac newMac(SecretKeySpec secretKey) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static final class PendingVerification {
+
+        private final byte[] codeHash;
+        private final long expiresAt;
+        private final AtomicInteger attemptsLeft;
+
+        private PendingVerification(byte[] codeHash, long expiresAt, int maxAttempts) {
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+            this.attemptsLeft = new AtomicInteger(maxAttempts);
+        }
+    }
+}
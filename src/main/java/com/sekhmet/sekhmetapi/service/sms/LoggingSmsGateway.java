@@ -0,0 +1,15 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link SmsGateway} writing the messages to the log instead of sending them, for development and load tests.
+ */
+@Slf4j
+class LoggingSmsGateway implements SmsGateway {
+
+    @Override
+    public void send(String phoneNumber, String message) {
+        log.info("SMS to {}: {}", phoneNumber, message);
+    }
+}
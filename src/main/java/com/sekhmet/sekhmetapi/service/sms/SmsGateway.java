@@ -0,0 +1,16 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+/**
+ * Delivers the text messages of the {@link LocalVerificationProvider}.
+ * <p>
+ * Declare a bean of this type to plug an SMS operator; without one, messages are only logged.
+ */
+public interface SmsGateway {
+    /**
+     * Send a text message.
+     *
+     * @param phoneNumber the phone number, with its country code.
+     * @param message the text of the message.
+     */
+    void send(String phoneNumber, String message);
+}
@@ -0,0 +1,20 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+/**
+ * This exception is thrown when a phone number or a client sends too many verification requests.
+ */
+public class SmsRateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public SmsRateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rate limits the phone verification requests, before they reach Twilio.
+ * <p>
+ * Sending and checking a code have their own buckets, each keyed by phone number and by client IP. A request rejected
+ * by one of its buckets takes no token from the other, so that the requests for a phone number over its limit do not
+ * use up the limit of the clients sending them.
+ * <p>
+ * The client IP is the remote address of the request, which is the one of the proxy in front of the application
+ * unless {@code server.forward-headers-strategy} is configured, see {@code application-prod.yml}.
+ */
+@Service
+@Slf4j
+public class SmsVerificationThrottle {
+
+    public static final String REJECTED_METER_NAME = "sms.verification.rejected";
+
+    private final boolean enabled;
+
+    private final Limit sendPerClientIp;
+
+    private final Limit sendPerPhoneNumber;
+
+    private final Limit checkPerClientIp;
+
+    private final Limit checkPerPhoneNumber;
+
+    public SmsVerificationThrottle(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.SmsProperties.RateLimit rateLimit = applicationProperties.getSms().getRateLimit();
+        this.enabled = rateLimit.isEnabled();
+        int maxKeys = rateLimit.getMaxKeys();
+        this.sendPerClientIp = new Limit(rateLimit.getSendPerClientIp(), maxKeys, "send", "client-ip", meterRegistry);
+        this.sendPerPhoneNumber = new Limit(rateLimit.getSendPerPhoneNumber(), maxKeys, "send", "phone-number", meterRegistry);
+        this.checkPerClientIp = new Limit(rateLimit.getCheckPerClientIp(), maxKeys, "check", "client-ip", meterRegistry);
+        this.checkPerPhoneNumber = new Limit(rateLimit.getCheckPerPhoneNumber(), maxKeys, "check", "phone-number", meterRegistry);
+    }
+
+    /**
+     * Take a token before sending a verification code.
+     *
+     * @param phoneNumber the phone number receiving the code.
+     * @param clientIp the address of the client.
+     * @throws SmsRateLimitExceededException if one of the buckets is empty.
+     */
+    public void acquireSend(String phoneNumber, String clientIp) {
+        acquire(sendPerClientIp, clientIp, sendPerPhoneNumber, phoneNumber);
+    }
+
+    /**
+     * Take a token before checking a verification code.
+     *
+     * @param phoneNumber the phone number the code was sent to.
+     * @param clientIp the address of the client.
+     * @throws SmsRateLimitExceededException if one of the buckets is empty.
+     */
+    public void acquireCheck(String phoneNumber, String clientIp) {
+        acquire(checkPerClientIp, clientIp, checkPerPhoneNumber, phoneNumber);
+    }
+
+    private void acquire(Limit perClientIp, String clientIp, Limit perPhoneNumber, String phoneNumber) {
+        if (!enabled) {
+            return;
+        }
+        if (clientIp != null) {
+            perClientIp.acquire(clientIp);
+        }
+        if (phoneNumber != null) {
+            try {
+                perPhoneNumber.acquire(phoneNumber);
+            } catch (SmsRateLimitExceededException e) {
+                if (clientIp != null) {
+                    perClientIp.release(clientIp);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static final class Limit {
+
+        private final TokenBucketRateLimiter limiter;
+
+        private final Counter rejectedCounter;
+
+        private final String operation;
+
+        private final String key;
+
+        private Limit(
+            ApplicationProperties.SmsProperties.RateLimit.Bucket bucket,
+            int maxKeys,
+            String operation,
+            String key,
+            MeterRegistry meterRegistry
+        ) {
+            this.limiter = new TokenBucketRateLimiter(bucket.getCapacity(), bucket.getPeriodSeconds(), maxKeys);
+            this.operation = operation;
+            this.key = key;
+            this.rejectedCounter =
+                Counter
+                    .builder(REJECTED_METER_NAME)
+                    .description("Indicates the number of phone verification requests rejected by the rate limiter.")
+                    .baseUnit("errors")
+                    .tag("operation", operation)
+                    .tag("key", key)
+                    .register(meterRegistry);
+        }
+
+        private void acquire(String value) {
+            long waitNanos = limiter.tryAcquire(value);
+            if (waitNanos > 0) {
+                rejectedCounter.increment();
+                log.debug("Rate limit of {} per {} exceeded", operation, key);
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+                throw new SmsRateLimitExceededException("Too many verification requests per " + key, retryAfterSeconds);
+            }
+        }
+
+        private void release(String value) {
+            limiter.release(value);
+        }
+    }
+}
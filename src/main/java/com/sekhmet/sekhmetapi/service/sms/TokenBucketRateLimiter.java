@@ -0,0 +1,97 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets keyed by an arbitrary string.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the instant at which it will be full again (the "theoretical
+ * arrival time" of the generic cell rate algorithm), updated with a compare-and-set. The buckets are spread over the
+ * segments of a {@link ConcurrentHashMap}, and full buckets are dropped when the number of keys reaches its bound.
+ */
+class TokenBucketRateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final long emissionIntervalNanos;
+
+    private final long periodNanos;
+
+    private final int maxKeys;
+
+    private final LongSupplier nanoClock;
+
+    TokenBucketRateLimiter(int capacity, long periodSeconds, int maxKeys) {
+        this(capacity, periodSeconds, maxKeys, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int capacity, long periodSeconds, int maxKeys, LongSupplier nanoClock) {
+        this.periodNanos = TimeUnit.SECONDS.toNanos(periodSeconds);
+        this.emissionIntervalNanos = periodNanos / Math.max(1, capacity);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Take a token from the bucket of the key.
+     *
+     * @param key the key of the bucket.
+     * @return {@code 0} if a token was taken, otherwise the number of nanoseconds before the next token is available.
+     */
+    long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + emissionIntervalNanos;
+            long wait = next - periodNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken from the bucket of the key, for a request rejected afterwards.
+     *
+     * @param key the key of the bucket.
+     */
+    void release(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            // a bucket full before now is full, see tryAcquire
+            bucket.addAndGet(-emissionIntervalNanos);
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private void evict(long now) {
+        // A full bucket behaves exactly like a missing one.
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        if (buckets.size() < maxKeys) {
+            return;
+        }
+        int toRemove = Math.max(1, buckets.size() - (maxKeys - maxKeys / 10));
+        Iterator<String> iterator = buckets.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
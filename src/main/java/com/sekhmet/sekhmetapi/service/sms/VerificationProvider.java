@@ -0,0 +1,29 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.StartPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
+
+/**
+ * Engine sending a verification code to a phone number, and checking the code sent back by the user.
+ * <p>
+ * The engine is chosen with {@code application.sms.verification.provider}.
+ */
+public interface VerificationProvider {
+    /**
+     * Send a verification code.
+     *
+     * @param request the phone number and channel.
+     * @return {@link VerificationStatus#PENDING} once the code is sent.
+     */
+    VerificationStatus sendVerificationCode(StartPhoneVerificationRequest request);
+
+    /**
+     * Check a verification code.
+     *
+     * @param request the phone number and the code.
+     * @return {@link VerificationStatus#APPROVED} if the code is right, {@link VerificationStatus#PENDING} if it is
+     * wrong, {@link VerificationStatus#CANCELED} if there is no verification left to check.
+     */
+    VerificationStatus checkVerificationCode(CheckPhoneVerificationRequest request);
+}
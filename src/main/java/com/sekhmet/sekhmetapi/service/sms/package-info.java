@@ -0,0 +1,4 @@
+/**
+ * Phone number verification by SMS.
+ */
+package com.sekhmet.sekhmetapi.service.sms;
@@ -0,0 +1,175 @@
+package com.sekhmet.sekhmetapi.service.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position in a list sorted by some properties, ending with a unique one: the values of the sort properties of the
+ * last element of a page, from which the next page starts.
+ * <p>
+ * The cursor is encoded as an opaque URL-safe string, holding the sort too so that a cursor can't be used with another
+ * sort. Integral and floating point values, such as the sort values of Elasticsearch hits, are read back as {@code Long}
+ * and {@code Double}. A value may be null, for a sort property which is null in the last element.
+ */
+public final class KeysetCursor {
+
+    private static final byte VERSION = 1;
+
+    private final Sort sort;
+
+    private final List<Object> values;
+
+    public KeysetCursor(Sort sort, List<Object> values) {
+        if (sort.stream().count() != values.size()) {
+            throw new IllegalArgumentException("Expected " + sort.stream().count() + " cursor values, got " + values.size());
+        }
+        this.sort = sort;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * @return the values of the sort properties, in the order of the sort.
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * Encode the cursor as an opaque string, safe to use in URLs and headers.
+     *
+     * @return the encoded cursor.
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(values.size());
+            int i = 0;
+            for (Sort.Order order : sort) {
+                out.writeUTF(order.getProperty());
+                out.writeBoolean(order.isAscending());
+                writeValue(out, values.get(i++));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a cursor encoded by {@link #encode()}.
+     *
+     * @param cursor the encoded cursor.
+     * @return the cursor.
+     * @throws IllegalArgumentException if the string is not a valid cursor.
+     */
+    public static KeysetCursor decode(String cursor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version");
+            }
+            int size = in.readByte();
+            List<Sort.Order> orders = new ArrayList<>(size);
+            List<Object> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String property = in.readUTF();
+                orders.add(in.readBoolean() ? Sort.Order.asc(property) : Sort.Order.desc(property));
+                values.add(readValue(in));
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new KeysetCursor(Sort.by(orders), values);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte('n');
+        } else if (value instanceof String) {
+            out.writeByte('s');
+            out.writeUTF((String) value);
+        } else if (value instanceof UUID) {
+            out.writeByte('u');
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof Boolean) {
+            out.writeByte('b');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            out.writeByte('l');
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte('d');
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Instant) {
+            out.writeByte('t');
+            out.writeLong(((Instant) value).getEpochSecond());
+            out.writeInt(((Instant) value).getNano());
+        } else {
+            throw new IllegalArgumentException("Unsupported cursor value: " + value);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case 'n':
+                return null;
+            case 's':
+                return in.readUTF();
+            case 'u':
+                return new UUID(in.readLong(), in.readLong());
+            case 'b':
+                return in.readBoolean();
+            case 'l':
+                return in.readLong();
+            case 'd':
+                return in.readDouble();
+            case 't':
+                return Instant.ofEpochSecond(in.readLong(), in.readInt());
+            default:
+                throw new IllegalArgumentException("Unsupported cursor value type: " + type);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KeysetCursor)) {
+            return false;
+        }
+        KeysetCursor that = (KeysetCursor) o;
+        return sort.equals(that.sort) && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, values);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{sort=" + sort + ", values=" + values + "}";
+    }
+}
@@ -3,10 +3,12 @@ package com.sekhmet.sekhmetapi.web.rest;
 import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
 import com.sekhmet.sekhmetapi.security.SecurityUtils;
 import com.sekhmet.sekhmetapi.service.ElasticsearchIndexService;
+import com.sekhmet.sekhmetapi.service.dto.ReindexStatusDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -37,4 +39,15 @@ public class ElasticsearchIndexResource {
             .headers(HeaderUtil.createAlert("elasticsearch.reindex.accepted", "elasticsearch.reindex.accepted", "null"))
             .build();
     }
+
+    /**
+     * {@code GET /elasticsearch/index} : get the progress of the running reindex, or the outcome of the last one, on this node.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the reindex status.
+     */
+    @GetMapping("/elasticsearch/index")
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<ReindexStatusDTO> getReindexStatus() {
+        return ResponseEntity.ok(elasticsearchIndexService.getReindexStatus());
+    }
 }
@@ -1,55 +1,82 @@
 package com.sekhmet.sekhmetapi.web.rest;
 
-import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
+import com.sekhmet.sekhmetapi.domain.User;
 import com.sekhmet.sekhmetapi.service.UserService;
+import com.sekhmet.sekhmetapi.service.dto.CursorPage;
 import com.sekhmet.sekhmetapi.service.dto.UserDTO;
+import com.sekhmet.sekhmetapi.web.rest.errors.BadRequestAlertException;
+import com.sekhmet.sekhmetapi.web.util.CursorPaginationUtil;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.PaginationUtil;
 
 @RestController
 @RequestMapping("/api")
+@Validated
 public class PublicUserResource {
 
     private static final List<String> ALLOWED_ORDERED_PROPERTIES = Collections.unmodifiableList(
         Arrays.asList("id", "login", "firstName", "lastName", "email", "activated", "langKey")
     );
 
+    /**
+     * The maximum number of users fetched by a single {@code POST /users/batch} request.
+     */
+    static final int MAX_BATCH_SIZE = 100;
+
+    private static final String ENTITY_NAME = "user";
+
     private final Logger log = LoggerFactory.getLogger(PublicUserResource.class);
 
     private final UserService userService;
-    private final UserSearchRepository userSearchRepository;
 
-    public PublicUserResource(UserSearchRepository userSearchRepository, UserService userService) {
+    public PublicUserResource(UserService userService) {
         this.userService = userService;
-        this.userSearchRepository = userSearchRepository;
     }
 
     /**
      * {@code GET /users} : get all users with only the public informations - calling this are allowed for anyone.
      *
      * @param pageable the pagination information.
+     * @param cursor the cursor of the page, empty for the first one, to page by keyset instead of offset.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDTO>> getAllPublicUsers(Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllPublicUsers(
+        Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.CURSOR_PARAMETER, required = false) String cursor
+    ) {
         log.debug("REST request to get all public User names");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
+        if (cursor != null) {
+            final CursorPage<UserDTO> page;
+            try {
+                page = userService.getAllPublicUsers(pageable.getSort(), cursor, pageable.getPageSize());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "invalidcursor");
+            }
+            HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
 
         final Page<UserDTO> page = userService.getAllPublicUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
@@ -68,6 +95,25 @@ public class PublicUserResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * {@code POST /users/batch} : get the users of the ids with only the public informations, in one request.
+     *
+     * @param ids the ids of the users, at most {@link #MAX_BATCH_SIZE}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the activated users found, in the
+     * order of the ids, or with status {@code 400 (Bad Request)} if there are too many ids or a {@code null} one.
+     */
+    @PostMapping("/users/batch")
+    public ResponseEntity<List<UserDTO>> getPublicUsersByIds(@RequestBody @Size(max = MAX_BATCH_SIZE) List<@NotNull UUID> ids) {
+        log.debug("REST request to get {} public Users by ids", ids.size());
+        List<UserDTO> users = userService
+            .getUsersByIds(ids)
+            .stream()
+            .filter(User::isActivated)
+            .map(UserDTO::new)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(users);
+    }
+
     private boolean onlyContainsAllowedProperties(Pageable pageable) {
         return pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains);
     }
@@ -86,10 +132,41 @@ public class PublicUserResource {
      * {@code SEARCH /_search/users/:query} : search for the User corresponding to the query.
      *
      * @param query the query to search.
-     * @return the result of the search.
+     * @param pageable the pagination information, whose size is capped.
+     * @param cursor the cursor of the page, empty for the first one, to page with {@code search_after} instead of page
+     *               numbers, beyond the maximum result window too.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the public fields of the users found.
      */
     @GetMapping("/_search/users/{query}")
-    public List<UserDTO> search(@PathVariable String query) {
-        return StreamSupport.stream(userSearchRepository.search(query).spliterator(), false).map(UserDTO::new).collect(Collectors.toList());
+    public ResponseEntity<List<UserDTO>> search(
+        @PathVariable String query,
+        Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.CURSOR_PARAMETER, required = false) String cursor
+    ) {
+        log.debug("REST request to search Users for query {}", query);
+        if (!onlyContainsAllowedProperties(pageable)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            if (cursor != null) {
+                CursorPage<UserDTO> page = userService.searchUsers(query, pageable.getSort(), cursor, pageable.getPageSize());
+                HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(
+                    ServletUriComponentsBuilder.fromCurrentRequest(),
+                    page
+                );
+                return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+            }
+            Slice<UserDTO> slice = userService.searchUsers(query, pageable);
+            if (slice instanceof Page) {
+                HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(
+                    ServletUriComponentsBuilder.fromCurrentRequest(),
+                    (Page<UserDTO>) slice
+                );
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            return ResponseEntity.ok(slice.getContent());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "invalidsearchpage");
+        }
     }
 }
@@ -2,17 +2,24 @@ package com.sekhmet.sekhmetapi.web.rest;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import com.sekhmet.sekhmetapi.security.PhoneVerifiedAuthenticationToken;
+import com.sekhmet.sekhmetapi.security.SecurityUtils;
 import com.sekhmet.sekhmetapi.security.jwt.JWTFilter;
 import com.sekhmet.sekhmetapi.security.jwt.TokenProvider;
 import com.sekhmet.sekhmetapi.service.TwilioConversationService;
-import com.sekhmet.sekhmetapi.service.TwilioService;
 import com.sekhmet.sekhmetapi.service.UserService;
 import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
 import com.sekhmet.sekhmetapi.service.dto.sms.StartPhoneVerificationRequest;
 import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
+import com.sekhmet.sekhmetapi.service.sms.SmsRateLimitExceededException;
+import com.sekhmet.sekhmetapi.service.sms.SmsVerificationThrottle;
+import com.sekhmet.sekhmetapi.service.sms.VerificationProvider;
 import com.sekhmet.sekhmetapi.web.rest.errors.BadRequestAlertException;
 import com.sekhmet.sekhmetapi.web.rest.vm.LoginVM;
+import io.micrometer.core.instrument.Timer;
 import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,9 +45,11 @@ public class UserJWTController {
     private final TokenProvider tokenProvider;
 
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
-    private final TwilioService smsService;
+    private final VerificationProvider smsService;
     private final TwilioConversationService conversationService;
     private final UserService userService;
+    private final SmsVerificationThrottle verificationThrottle;
+    private final SecurityMetersService securityMetersService;
 
     @PostMapping("/authenticate")
     public ResponseEntity<JWTToken> authorize(@Valid @RequestBody LoginVM loginVM) {
@@ -51,12 +60,14 @@ public class UserJWTController {
     }
 
     @GetMapping("/login")
-    public ResponseEntity<VerificationStatus> authenticate(StartPhoneVerificationRequest request) {
+    public ResponseEntity<VerificationStatus> authenticate(StartPhoneVerificationRequest request, HttpServletRequest httpRequest) {
         // for GOOGLE and APPLE verification
         if (request.getPhoneNumber().startsWith("+23799999")) {
             return ResponseEntity.ok(VerificationStatus.PENDING);
         }
 
+        verificationThrottle.acquireSend(request.getPhoneNumber(), httpRequest.getRemoteAddr());
+
         VerificationStatus status = smsService.sendVerificationCode(request);
         if (status == null) {
             throw new BadRequestAlertException("An error occur during Verification Code Send", ENTITY_NAME, "errorSendVerificationCode");
@@ -74,20 +85,28 @@ public class UserJWTController {
      * @return
      */
     @GetMapping("/verify")
-    public ResponseEntity<JWTToken> verify(CheckPhoneVerificationRequest request) {
-        // for GOOGLE and APPLE verification
-        if (request.getPhoneNumber().startsWith("+23799999") && request.getToken().startsWith("9999")) {
-            return getJwtTokenResponseEntity(request);
+    public ResponseEntity<JWTToken> verify(CheckPhoneVerificationRequest request, HttpServletRequest httpRequest) {
+        Timer.Sample sample = securityMetersService.startPhoneVerification();
+        VerificationStatus status;
+        try {
+            status = checkVerificationCode(request, httpRequest);
+        } catch (SmsRateLimitExceededException e) {
+            securityMetersService.stopPhoneVerification(sample, "rate-limited");
+            throw e;
+        } catch (RuntimeException e) {
+            securityMetersService.stopPhoneVerification(sample, "error");
+            throw e;
         }
-
-        VerificationStatus status = smsService.checkVerificationCode(request);
         if (status == null) {
+            securityMetersService.stopPhoneVerification(sample, "error");
             throw new BadRequestAlertException("An error occur during Verification Code Send", ENTITY_NAME, "errorCheckVerificationCode");
         }
         if (status == VerificationStatus.CANCELED) {
+            securityMetersService.stopPhoneVerification(sample, status.toString());
             throw new BadRequestAlertException("An error occurred request canceled", ENTITY_NAME, "errorCheckVerificationCodeCanceled");
         }
         if (status == VerificationStatus.PENDING) {
+            securityMetersService.stopPhoneVerification(sample, status.toString());
             throw new BadRequestAlertException(
                 "An error occurred request pending (wrong code)",
                 ENTITY_NAME,
@@ -95,27 +114,54 @@ public class UserJWTController {
             );
         }
 
-        return getJwtTokenResponseEntity(request);
+        ResponseEntity<JWTToken> response;
+        try {
+            response = getJwtTokenResponseEntity(request);
+        } catch (RuntimeException e) {
+            securityMetersService.stopPhoneVerification(sample, "error");
+            throw e;
+        }
+        securityMetersService.stopPhoneVerification(sample, status.toString());
+        return response;
+    }
+
+    private VerificationStatus checkVerificationCode(CheckPhoneVerificationRequest request, HttpServletRequest httpRequest) {
+        // for GOOGLE and APPLE verification
+        if (request.getPhoneNumber().startsWith("+23799999") && request.getToken().startsWith("9999")) {
+            return VerificationStatus.APPROVED;
+        }
+
+        verificationThrottle.acquireCheck(request.getPhoneNumber(), httpRequest.getRemoteAddr());
+
+        return smsService.checkVerificationCode(request);
     }
 
     /**
-     * Login or signup via phone number
+     * Get the Twilio access token of the current user, along with the JWT used to call this endpoint.
+     * <p>
+     * The phone number parameters sent by older clients are ignored: the user is the one of the current JWT, and the
+     * Twilio token is only minted again when the cached one is about to expire.
      *
-     * @return
+     * @return the current JWT and the Twilio access token.
      */
     @GetMapping("/refresh-twilio-token")
-    public ResponseEntity<JWTToken> refreshTwilioToken(CheckPhoneVerificationRequest request) {
-        log.info("Refresh twilio token request: {}", request);
-        return getJwtTokenResponseEntity(request);
+    public ResponseEntity<JWTToken> refreshTwilioToken() {
+        String jwt = SecurityUtils.getCurrentUserJWT().orElseThrow(() -> new AccountResource.AccountResourceException("No current JWT"));
+        User user = userService
+            .getUserWithAuthorities()
+            .orElseThrow(() -> new AccountResource.AccountResourceException("User could not be found"));
+        log.debug("Refresh twilio token request for user: {}", user.getLogin());
+        String twilioToken = conversationService.generateAccessToken(user.getId());
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(JWTFilter.TWILIO_AUTHORIZATION_HEADER, twilioToken);
+        return new ResponseEntity<>(new JWTToken(jwt, twilioToken), httpHeaders, HttpStatus.OK);
     }
 
     private ResponseEntity<JWTToken> getJwtTokenResponseEntity(CheckPhoneVerificationRequest request) {
         Optional<User> userOptional = userService.getUserByPhoneNumber(request.getPhoneNumber());
         User user = userOptional.orElseGet(() -> userService.registerUserByPhoneNumber(request));
-        String phoneLogin = userService.buildPhoneLogin(request);
-        String password = userService.buildPhoneLoginPassword(phoneLogin);
 
-        String jwt = createToken(phoneLogin, password, true);
+        String jwt = createToken(PhoneVerifiedAuthenticationToken.unauthenticated(user), true);
         HttpHeaders httpHeaders = new HttpHeaders();
         String twilioToken = conversationService.generateAccessToken(user.getId());
         httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
@@ -124,7 +170,10 @@ public class UserJWTController {
     }
 
     private String createToken(String login, String password, boolean rememberMe) {
-        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(login, password);
+        return createToken(new UsernamePasswordAuthenticationToken(login, password), rememberMe);
+    }
+
+    private String createToken(Authentication authenticationToken, boolean rememberMe) {
         Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
         SecurityContextHolder.getContext().setAuthentication(authentication);
         return tokenProvider.createToken(authentication, rememberMe);
@@ -7,9 +7,11 @@ import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
 import com.sekhmet.sekhmetapi.service.MailService;
 import com.sekhmet.sekhmetapi.service.UserService;
 import com.sekhmet.sekhmetapi.service.dto.AdminUserDTO;
+import com.sekhmet.sekhmetapi.service.dto.CursorPage;
 import com.sekhmet.sekhmetapi.web.rest.errors.BadRequestAlertException;
 import com.sekhmet.sekhmetapi.web.rest.errors.EmailAlreadyUsedException;
 import com.sekhmet.sekhmetapi.web.rest.errors.LoginAlreadyUsedException;
+import com.sekhmet.sekhmetapi.web.util.CursorPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -158,15 +160,29 @@ public class UserResource {
      * {@code GET /admin/users} : get all users with all the details - calling this are only allowed for the administrators.
      *
      * @param pageable the pagination information.
+     * @param cursor the cursor of the page, empty for the first one, to page by keyset instead of offset.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body all users.
      */
     @GetMapping("/users")
     @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
-    public ResponseEntity<List<AdminUserDTO>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(
+        Pageable pageable,
+        @RequestParam(name = CursorPaginationUtil.CURSOR_PARAMETER, required = false) String cursor
+    ) {
         log.debug("REST request to get all User for an admin");
         if (!onlyContainsAllowedProperties(pageable)) {
             return ResponseEntity.badRequest().build();
         }
+        if (cursor != null) {
+            final CursorPage<AdminUserDTO> page;
+            try {
+                page = userService.getAllManagedUsers(pageable.getSort(), cursor, pageable.getPageSize());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestAlertException(e.getMessage(), "userManagement", "invalidcursor");
+            }
+            HttpHeaders headers = CursorPaginationUtil.generateCursorHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
         final Page<AdminUserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
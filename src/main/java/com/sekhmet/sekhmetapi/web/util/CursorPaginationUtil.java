@@ -0,0 +1,39 @@
+package com.sekhmet.sekhmetapi.web.util;
+
+import com.sekhmet.sekhmetapi.service.dto.CursorPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset pagination, the counterpart of {@link tech.jhipster.web.util.PaginationUtil} for
+ * {@link CursorPage}s.
+ * <p>
+ * The cursor mode of an endpoint is selected by its {@code cursor} parameter, empty for the first page. The cursor of
+ * the next page is returned in the {@code X-Next-Cursor} header and as a {@code next} link, both absent on the last page.
+ */
+public final class CursorPaginationUtil {
+
+    public static final String CURSOR_PARAMETER = "cursor";
+
+    public static final String HEADER_X_NEXT_CURSOR = "X-Next-Cursor";
+
+    private CursorPaginationUtil() {}
+
+    /**
+     * Generate the pagination headers of a {@link CursorPage}.
+     *
+     * @param uriBuilder the builder of the URI of the request.
+     * @param page the page.
+     * @param <T> the type of the elements.
+     * @return the headers.
+     */
+    public static <T> HttpHeaders generateCursorHttpHeaders(UriComponentsBuilder uriBuilder, CursorPage<T> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            headers.add(HEADER_X_NEXT_CURSOR, page.getNextCursor());
+            String next = uriBuilder.replaceQueryParam(CURSOR_PARAMETER, page.getNextCursor()).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Utility classes of the REST controllers.
+ */
+package com.sekhmet.sekhmetapi.web.util;
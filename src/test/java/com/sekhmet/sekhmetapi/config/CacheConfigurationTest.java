@@ -0,0 +1,116 @@
+package com.sekhmet.sekhmetapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.security.DomainUserDetailsService;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Unit tests for the {@link CacheConfiguration}, with the cache policies bound as from the application properties.
+ */
+class CacheConfigurationTest {
+
+    private Map<String, String> properties;
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setup() {
+        properties = new HashMap<>();
+        cacheManager =
+            Caching
+                .getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider")
+                .getCacheManager(URI.create("cache-configuration-test"), getClass().getClassLoader());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        cacheManager.close();
+    }
+
+    @Test
+    void testCachePoliciesAreApplied() {
+        properties.put("application.cache.caches.usersById.max-entries", "50");
+        properties.put("application.cache.caches.usersById.off-heap-size", "1MB");
+        properties.put("application.cache.caches.usersById.time-to-live-seconds", "60");
+        properties.put("application.cache.caches[com.sekhmet.sekhmetapi.domain.User].heap-size", "256KB");
+
+        customizeCacheManager();
+
+        ResourcePools usersById = runtimeConfiguration(UserRepository.USERS_BY_ID_CACHE).getResourcePools();
+        assertThat(usersById.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(50);
+        assertThat(usersById.getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(usersById.getPoolForResource(ResourceType.Core.OFFHEAP).getSize()).isEqualTo(1024 * 1024);
+        assertThat(usersById.getPoolForResource(ResourceType.Core.OFFHEAP).getUnit()).isEqualTo(MemoryUnit.B);
+        assertThat(runtimeConfiguration(UserRepository.USERS_BY_ID_CACHE).getExpiryPolicy().getExpiryForCreation(null, null))
+            .isEqualTo(Duration.ofSeconds(60));
+
+        ResourcePools users = runtimeConfiguration(User.class.getName()).getResourcePools();
+        assertThat(users.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(256 * 1024);
+        assertThat(users.getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(MemoryUnit.B);
+        assertThat(users.getPoolForResource(ResourceType.Core.OFFHEAP)).isNull();
+    }
+
+    @Test
+    void testCachesWithoutPolicyUseTheDefaults() {
+        customizeCacheManager();
+
+        ResourcePools usersByLogin = runtimeConfiguration(UserRepository.USERS_BY_LOGIN_CACHE).getResourcePools();
+        assertThat(usersByLogin.getPoolForResource(ResourceType.Core.HEAP).getSize())
+            .isEqualTo(new JHipsterProperties().getCache().getEhcache().getMaxEntries());
+        assertThat(usersByLogin.getPoolForResource(ResourceType.Core.OFFHEAP)).isNull();
+    }
+
+    @Test
+    void testTimeToIdleIsApplied() {
+        properties.put("application.cache.caches.userDetails.time-to-idle-seconds", "30");
+
+        customizeCacheManager();
+
+        CacheRuntimeConfiguration<Object, Object> userDetails = runtimeConfiguration(DomainUserDetailsService.USER_DETAILS_CACHE);
+        assertThat(userDetails.getExpiryPolicy().getExpiryForCreation(null, null)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(userDetails.getExpiryPolicy().getExpiryForAccess(null, null)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testTimeToLiveAndTimeToIdleAreRejectedTogether() {
+        properties.put("application.cache.caches.userDetails.time-to-live-seconds", "60");
+        properties.put("application.cache.caches.userDetails.time-to-idle-seconds", "30");
+
+        assertThatThrownBy(this::customizeCacheManager)
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("userDetails");
+    }
+
+    private void customizeCacheManager() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        new Binder(new MapConfigurationPropertySource(properties)).bind("application", Bindable.ofInstance(applicationProperties));
+        new CacheConfiguration(new JHipsterProperties(), applicationProperties).cacheManagerCustomizer().customize(cacheManager);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheRuntimeConfiguration<Object, Object> runtimeConfiguration(String cacheName) {
+        return cacheManager.getCache(cacheName).getConfiguration(Eh107Configuration.class).unwrap(CacheRuntimeConfiguration.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.sekhmet.sekhmetapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Records the SQL statements prepared by Hibernate on the current thread, to catch N+1 query regressions: a MockMvc
+ * request is handled on the thread of the test, so its statements can be counted.
+ * <p>
+ * Registered by {@code hibernate.session_factory.statement_inspector} in the test configuration, it only records once
+ * {@link #reset()} is called. Test classes counting statements extend with it, so that it stops recording after each
+ * test. Flush and clear the entity manager before {@link #reset()}, so that the request does not find the entities
+ * saved by the test.
+ */
+public class SqlStatementCounter implements StatementInspector, AfterEachCallback {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = STATEMENTS.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        STATEMENTS.remove();
+    }
+
+    /**
+     * Start recording the statements of the current thread, forgetting the ones recorded before.
+     */
+    public static void reset() {
+        STATEMENTS.set(new ArrayList<>());
+    }
+
+    public static List<String> statements() {
+        List<String> statements = STATEMENTS.get();
+        return statements != null ? List.copyOf(statements) : List.of();
+    }
+
+    public static long selectCount() {
+        return statements().stream().filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith("select")).count();
+    }
+
+    /**
+     * Assert that at most the given number of selects were prepared since the last {@link #reset()}.
+     *
+     * @param expected the maximum number of selects.
+     */
+    public static void assertSelectCount(long expected) {
+        assertThat(selectCount()).as("selects, in %s", statements()).isLessThanOrEqualTo(expected);
+    }
+}
@@ -0,0 +1,126 @@
+package com.sekhmet.sekhmetapi.domain.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JMH comparison of the insert throughput of random and {@link TimeOrderedUuidGenerator time-ordered} UUID primary
+ * keys, in a Postgres started by Testcontainers.
+ * <p>
+ * Each invocation inserts a million users and their authority in batches, into tables shaped as {@code skh_user} and
+ * {@code skh_user_authority}: the indexes soon outgrow the default shared buffers, where random keys thrash. The size of
+ * the primary key indexes is logged after each iteration. Run it from the IDE, or with {@code ./mvnw test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.sekhmet.sekhmetapi.domain.util.TimeOrderedUuidGeneratorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, batchSize = 1)
+@Measurement(iterations = 3, batchSize = 1)
+@Fork(1)
+public class TimeOrderedUuidGeneratorBenchmark {
+
+    private static final String URL = "jdbc:tc:postgresql:13.5:///benchmark?TC_TMPFS=/testtmpfs:rw";
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final Logger log = LoggerFactory.getLogger(TimeOrderedUuidGeneratorBenchmark.class);
+
+    @Param({ "random", "time-ordered" })
+    public String generator;
+
+    private Supplier<UUID> ids;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        ids = "random".equals(generator) ? UUID::randomUUID : TimeOrderedUuidGenerator::next;
+        connection = DriverManager.getConnection(URL, "benchmark", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists bench_user_authority");
+            statement.execute("drop table if exists bench_user");
+            statement.execute("create table bench_user (id uuid primary key, login varchar(50) not null)");
+            statement.execute(
+                "create table bench_user_authority (user_id uuid not null references bench_user (id), authority_name varchar(50) not null, " +
+                "primary key (user_id, authority_name))"
+            );
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printIndexSize() throws SQLException {
+        try (
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(
+                "select pg_size_pretty(pg_relation_size('bench_user_pkey')), pg_size_pretty(pg_relation_size('bench_user_authority_pkey'))"
+            )
+        ) {
+            resultSet.next();
+            log.info("{}: bench_user_pkey {}, bench_user_authority_pkey {}", generator, resultSet.getString(1), resultSet.getString(2));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertUsers() throws SQLException {
+        try (
+            PreparedStatement insertUser = connection.prepareStatement("insert into bench_user (id, login) values (?, ?)");
+            PreparedStatement insertAuthority = connection.prepareStatement(
+                "insert into bench_user_authority (user_id, authority_name) values (?, 'ROLE_USER')"
+            )
+        ) {
+            for (int i = 1; i <= ROWS; i++) {
+                UUID id = ids.get();
+                insertUser.setObject(1, id);
+                insertUser.setString(2, id.toString());
+                insertUser.addBatch();
+                insertAuthority.setObject(1, id);
+                insertAuthority.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insertUser.executeBatch();
+                    insertAuthority.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TimeOrderedUuidGeneratorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
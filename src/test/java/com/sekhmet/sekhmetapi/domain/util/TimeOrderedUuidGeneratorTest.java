@@ -0,0 +1,37 @@
+package com.sekhmet.sekhmetapi.domain.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link TimeOrderedUuidGenerator}.
+ */
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    void testUuidsAreVersion7() {
+        long now = System.currentTimeMillis() + 60_000;
+        UUID uuid = TimeOrderedUuidGenerator.next(now);
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(TimeOrderedUuidGenerator.timestampOf(uuid)).isGreaterThanOrEqualTo(now);
+    }
+
+    @Test
+    void testUuidsAreOrderedWithinAndAcrossMilliseconds() {
+        long now = System.currentTimeMillis() + 120_000;
+        List<String> uuids = new ArrayList<>();
+        // more than the 4096 UUIDs of a millisecond counter, and a clock going back
+        for (int i = 0; i < 10_000; i++) {
+            uuids.add(TimeOrderedUuidGenerator.next(now + i / 5_000 - (i == 9_999 ? 10 : 0)).toString());
+        }
+
+        // the string order of UUIDs is their byte order, as compared by Postgres
+        assertThat(uuids).isSorted().doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,66 @@
+package com.sekhmet.sekhmetapi.management;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HibernateStatisticsEndpointTest {
+
+    private static final String REGION = "com.sekhmet.sekhmetapi.domain.User";
+
+    private Statistics statistics;
+
+    private HibernateStatisticsEndpoint endpoint;
+
+    @BeforeEach
+    public void setup() {
+        statistics = mock(Statistics.class);
+        CacheRegionStatistics regionStatistics = mock(CacheRegionStatistics.class);
+        when(regionStatistics.getHitCount()).thenReturn(3L);
+        when(regionStatistics.getMissCount()).thenReturn(1L);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] { REGION });
+        when(statistics.getDomainDataRegionStatistics(REGION)).thenReturn(regionStatistics);
+
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        endpoint = new HibernateStatisticsEndpoint(entityManagerFactory);
+    }
+
+    @Test
+    void testStatisticsAreEnabledAtRuntime() {
+        endpoint.enable(true);
+
+        verify(statistics).setStatisticsEnabled(true);
+    }
+
+    @Test
+    void testStatisticsAreNotResetWhenAlreadyEnabled() {
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+
+        endpoint.enable(true);
+
+        verify(statistics, never()).setStatisticsEnabled(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRegionCountsAreReported() {
+        Map<String, Object> body = endpoint.statistics();
+
+        assertThat(body).containsEntry("enabled", false);
+        Map<String, Long> counts = (Map<String, Long>) ((Map<String, Object>) body.get("regions")).get(REGION);
+        assertThat(counts).containsEntry("hits", 3L).containsEntry("misses", 1L).containsEntry("puts", 0L);
+    }
+}
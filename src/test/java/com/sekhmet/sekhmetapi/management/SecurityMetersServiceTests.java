@@ -6,12 +6,14 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class SecurityMetersServiceTests {
 
     private static final String INVALID_TOKENS_METER_EXPECTED_NAME = "security.authentication.invalid-tokens";
+    private static final String TOKEN_CACHE_METER_EXPECTED_NAME = "security.authentication.token-cache";
 
     private MeterRegistry meterRegistry;
 
@@ -36,9 +38,11 @@ class SecurityMetersServiceTests {
 
         meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter();
 
+        meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter();
+
         Collection<Counter> counters = meterRegistry.find(INVALID_TOKENS_METER_EXPECTED_NAME).counters();
 
-        assertThat(counters.size()).isEqualTo(4);
+        assertThat(counters.size()).isEqualTo(5);
     }
 
     @Test
@@ -66,5 +70,75 @@ class SecurityMetersServiceTests {
         securityMetersService.trackTokenMalformed();
 
         assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter().count()).isEqualTo(1);
+
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter().count()).isEqualTo(0);
+
+        securityMetersService.trackTokenRevoked();
+
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTokenCacheCountersAreBoundToCorrectCounters() {
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(0);
+
+        securityMetersService.trackTokenCacheHit();
+
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(1);
+
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(0);
+
+        securityMetersService.trackTokenCacheMiss();
+
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLatenciesAreRecordedByOutcome() {
+        securityMetersService.recordUserLookup("login", "found", 1_000_000);
+        securityMetersService.recordUserLookup("email", "not-found", 2_000_000);
+        securityMetersService.recordTokenCreation(3_000_000, 180);
+        securityMetersService.recordTokenParsing("valid", 4_000_000);
+        securityMetersService.recordTokenParsing("expired", 5_000_000);
+        securityMetersService.stopPhoneVerification(securityMetersService.startPhoneVerification(), "approved");
+
+        assertThat(
+            meterRegistry
+                .get(SecurityMetersService.USER_LOOKUP_METER_NAME)
+                .tag("lookup", "login")
+                .tag("outcome", "found")
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS)
+        )
+            .isEqualTo(1);
+        assertThat(
+            meterRegistry
+                .get(SecurityMetersService.USER_LOOKUP_METER_NAME)
+                .tag("lookup", "email")
+                .tag("outcome", "not-found")
+                .timer()
+                .count()
+        )
+            .isEqualTo(1);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_CREATION_METER_NAME).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_SIZE_METER_NAME).summary().totalAmount()).isEqualTo(180);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_PARSING_METER_NAME).tag("outcome", "valid").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_PARSING_METER_NAME).tag("outcome", "expired").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get(SecurityMetersService.PHONE_VERIFICATION_METER_NAME).tag("outcome", "approved").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void testTimersByOutcomeAreCreated() {
+        assertThat(meterRegistry.get(SecurityMetersService.USER_LOOKUP_METER_NAME).timers()).hasSize(8);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_CREATION_METER_NAME).timers()).hasSize(1);
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_PARSING_METER_NAME).timers()).hasSize(7);
+        assertThat(meterRegistry.get(SecurityMetersService.TWILIO_TOKEN_MINTING_METER_NAME).timers()).hasSize(2);
+        assertThat(meterRegistry.get(SecurityMetersService.PHONE_VERIFICATION_METER_NAME).timers()).hasSize(5);
+
+        securityMetersService.recordTokenParsing("valid", 1_000_000);
+
+        assertThat(meterRegistry.get(SecurityMetersService.TOKEN_PARSING_METER_NAME).timers()).hasSize(7);
     }
 }
@@ -0,0 +1,131 @@
+package com.sekhmet.sekhmetapi.repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH measure of the latency of the public user search ({@link UserRepository#findAllPublicUsersBySearch}) over
+ * {@code users} users, with and without the trigram indexes of the {@code 20261018000100} changelog, in a Postgres
+ * started by Testcontainers.
+ * <p>
+ * The query is the SQL generated by Hibernate for the first page and its count. Run it from the IDE, or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sekhmet.sekhmetapi.repository.UserSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserSearchBenchmark {
+
+    private static final String URL = "jdbc:tc:postgresql:13.5:///benchmark?TC_TMPFS=/testtmpfs:rw";
+
+    private static final String WHERE =
+        " where (lower(first_name) like ? or lower(last_name) like ? or lower(email) like ? or lower(phone_number) like ?)" +
+        " and activated=true";
+
+    @Param({ "1000000" })
+    public int users;
+
+    @Param({ "false", "true" })
+    public boolean trigramIndexes;
+
+    /**
+     * A rare name, a frequent one, and a phone number prefix.
+     */
+    @Param({ "ab12c", "john", "+2376990" })
+    public String search;
+
+    private Connection connection;
+
+    private PreparedStatement page;
+
+    private PreparedStatement count;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(URL, "benchmark", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create extension if not exists pg_trgm");
+            statement.execute("drop table if exists skh_user");
+            statement.execute(
+                "create table skh_user (id uuid primary key, login varchar(50) not null, first_name varchar(50), last_name varchar(50), " +
+                "email varchar(254), phone_number varchar(254), image_url varchar(256), activated boolean not null)"
+            );
+            statement.execute(
+                "insert into skh_user select md5(i::text)::uuid, 'user' || i, " +
+                "case when i % 100 = 0 then 'John' else initcap(substr(md5('f' || i), 1, 8)) end, " +
+                "initcap(substr(md5('l' || i), 1, 10)), 'user' || i || '@' || substr(md5('e' || i), 1, 6) || '.com', " +
+                "'+2376' || lpad(i::text, 8, '0'), null, i % 10 <> 0 " +
+                "from generate_series(1, " +
+                users +
+                ") as i"
+            );
+            if (trigramIndexes) {
+                for (String column : new String[] { "first_name", "last_name", "email", "phone_number" }) {
+                    statement.execute(
+                        "create index idx_user_" + column + "_trgm on skh_user using gin (lower(" + column + ") gin_trgm_ops)"
+                    );
+                }
+            }
+            statement.execute("analyze skh_user");
+        }
+        page =
+            connection.prepareStatement(
+                "select id, login, first_name, last_name, email, image_url, activated, phone_number from skh_user" +
+                WHERE +
+                " order by id limit 20"
+            );
+        count = connection.prepareStatement("select count(id) from skh_user" + WHERE);
+        String pattern = "%" + search.toLowerCase() + "%";
+        for (int i = 1; i <= 4; i++) {
+            page.setString(i, pattern);
+            count.setString(i, pattern);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void searchFirstPage(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = page.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getString(2));
+            }
+        }
+        try (ResultSet resultSet = count.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getLong(1));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,178 @@
+package com.sekhmet.sekhmetapi.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.service.ElasticsearchIndexService;
+import com.sekhmet.sekhmetapi.service.TwilioService;
+import com.sekhmet.sekhmetapi.service.dto.ReindexStatusDTO;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Integration tests for the public user search of the {@link UserSearchRepository}, through {@code /api/users/search},
+ * against an Elasticsearch started by Testcontainers.
+ */
+@AutoConfigureMockMvc
+@WithMockUser
+@IntegrationTest
+class UserSearchRepositoryIT {
+
+    // the version of src/main/docker/elasticsearch.yml
+    private static final ElasticsearchContainer elasticsearch = new ElasticsearchContainer(
+        DockerImageName.parse("docker.elastic.co/elasticsearch/elasticsearch:7.13.3")
+    );
+
+    /**
+     * This repository is mocked in the com.sekhmet.sekhmetapi.repository.search test package: its public user search is
+     * delegated to the actual implementation.
+     *
+     * @see UserSearchRepositoryMockConfiguration
+     */
+    @Autowired
+    private UserSearchRepository mockUserSearchRepository;
+
+    @Autowired
+    private ElasticsearchIndexService elasticsearchIndexService;
+
+    @Autowired
+    private ElasticsearchRestTemplate elasticsearchTemplate;
+
+    @Autowired
+    private MockMvc restUserMockMvc;
+
+    @MockBean
+    private TwilioService twilioService;
+
+    @DynamicPropertySource
+    static void elasticsearchProperties(DynamicPropertyRegistry registry) {
+        elasticsearch.start();
+        registry.add("spring.elasticsearch.rest.uris", elasticsearch::getHttpHostAddress);
+        registry.add("application.search.engine", () -> "elasticsearch");
+    }
+
+    @AfterAll
+    static void stopElasticsearch() {
+        elasticsearch.stop();
+    }
+
+    @BeforeEach
+    void setup() throws InterruptedException {
+        UserSearchRepositoryInternal userSearchRepository = new UserSearchRepositoryInternalImpl(elasticsearchTemplate);
+        when(mockUserSearchRepository.searchPublicUsers(anyString(), any(Pageable.class)))
+            .thenAnswer(invocation -> userSearchRepository.searchPublicUsers(invocation.getArgument(0), invocation.getArgument(1)));
+        // the index doesn't exist until the reindex of the startup created it
+        assertThat(awaitReindexFinishedAfter(Instant.EPOCH).getState()).isEqualTo(ReindexStatusDTO.State.COMPLETED);
+    }
+
+    @Test
+    void testSearchMatchesPrefixesAndTypos() throws Exception {
+        User jonathan = createUser("jsmithson", "Jonathan", "Smithson");
+        User martha = createUser("mjones", "Martha", "Jones");
+        elasticsearchTemplate.save(jonathan);
+        elasticsearchTemplate.save(martha);
+        elasticsearchTemplate.indexOps(User.class).refresh();
+
+        restUserMockMvc
+            .perform(get("/api/users/search").param("search", "Jonat").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(hasItem("jsmithson")))
+            .andExpect(jsonPath("$.[*].login").value(not(hasItem("mjones"))));
+        restUserMockMvc
+            .perform(get("/api/users/search").param("search", "Smithsin").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(hasItem("jsmithson")))
+            .andExpect(jsonPath("$.[*].login").value(not(hasItem("mjones"))));
+    }
+
+    @Test
+    void testIndexWithoutTheAnalyzedFieldsIsReindexed() throws InterruptedException {
+        String alias = elasticsearchTemplate.getIndexCoordinatesFor(User.class).getIndexName();
+        String legacyIndex = alias + "-legacy";
+        // the mapping of the indices created before the name fields were analyzed
+        IndexOperations legacyIndexOperations = elasticsearchTemplate.indexOps(IndexCoordinates.of(legacyIndex));
+        legacyIndexOperations.create();
+        legacyIndexOperations.putMapping(
+            Document.parse(
+                "{\"properties\":{" +
+                "\"login\":{\"type\":\"keyword\"}," +
+                "\"firstName\":{\"type\":\"keyword\"}," +
+                "\"lastName\":{\"type\":\"keyword\"}" +
+                "}}"
+            )
+        );
+        elasticsearchTemplate.execute(client -> {
+            Set<String> indices = client.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases().keySet();
+            IndicesAliasesRequest request = new IndicesAliasesRequest();
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(legacyIndex).alias(alias));
+            indices.forEach(index -> request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(index).alias(alias)));
+            return client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        });
+        Instant start = Instant.now();
+
+        elasticsearchIndexService.reindexOutdatedIndex();
+
+        ReindexStatusDTO status = awaitReindexFinishedAfter(start);
+        assertThat(status.getState()).isEqualTo(ReindexStatusDTO.State.COMPLETED);
+        Set<String> indices = elasticsearchTemplate.execute(client ->
+            client.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases().keySet()
+        );
+        assertThat(indices).containsExactly(status.getIndex());
+        assertThat(legacyIndexOperations.exists()).isFalse();
+    }
+
+    private static User createUser(String login, String firstName, String lastName) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setLogin(login);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(login + "@localhost");
+        user.setActivated(true);
+        return user;
+    }
+
+    private ReindexStatusDTO awaitReindexFinishedAfter(Instant start) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        ReindexStatusDTO status = elasticsearchIndexService.getReindexStatus();
+        while (
+            (status.getFinishedDate() == null || status.getFinishedDate().isBefore(start)) && System.currentTimeMillis() < deadline
+        ) {
+            Thread.sleep(100);
+            status = elasticsearchIndexService.getReindexStatus();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,26 @@
+package com.sekhmet.sekhmetapi.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the queries of the {@link UserSearchRepositoryInternalImpl}.
+ */
+class UserSearchRepositoryInternalImplTest {
+
+    @Test
+    void testPublicUsersQueryMatchesPrefixesWithTypos() {
+        String query = UserSearchRepositoryInternalImpl.publicUsersQuery("Jöhn D").toString();
+
+        assertThat(query)
+            .contains("\"type\" : \"phrase_prefix\"")
+            .contains("\"firstName.folded\"")
+            .contains("\"lastName.autocomplete\"")
+            .contains("\"fuzziness\" : \"AUTO\"")
+            .contains("\"minimum_should_match\" : \"1\"")
+            .contains("\"email\" : {")
+            .doesNotContain("query_string");
+        assertThat(query.substring(query.indexOf("\"filter\""))).contains("\"activated\"");
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,11 +38,16 @@ class DomainUserDetailsServiceIT {
     @Autowired
     private UserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @MockBean
     private TwilioService twilioService;
 
     @BeforeEach
     public void init() {
+        cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_CACHE).clear();
+
         User userOne = new User();
         userOne.setLogin(USER_ONE_LOGIN);
         userOne.setPassword(RandomStringUtils.random(60));
@@ -113,4 +119,17 @@ class DomainUserDetailsServiceIT {
         assertThatExceptionOfType(UserNotActivatedException.class)
             .isThrownBy(() -> domainUserDetailsService.loadUserByUsername(USER_THREE_LOGIN));
     }
+
+    @Test
+    void assertThatUserDetailsAreCachedByLoginAndEmail() {
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN);
+        domainUserDetailsService.loadUserByUsername(USER_ONE_EMAIL.toUpperCase(Locale.ENGLISH));
+        userRepository.findOneByLogin(USER_ONE_LOGIN).ifPresent(userRepository::delete);
+
+        UserDetails cachedUserDetails = domainUserDetailsService.loadUserByUsername(USER_ONE_LOGIN.toUpperCase(Locale.ENGLISH));
+        assertThat(cachedUserDetails).isNotSameAs(userDetails);
+        assertThat(cachedUserDetails.getUsername()).isEqualTo(USER_ONE_LOGIN);
+        assertThat(cachedUserDetails.getPassword()).isEqualTo(userDetails.getPassword());
+        assertThat(domainUserDetailsService.loadUserByUsername(USER_ONE_EMAIL).getUsername()).isEqualTo(USER_ONE_LOGIN);
+    }
 }
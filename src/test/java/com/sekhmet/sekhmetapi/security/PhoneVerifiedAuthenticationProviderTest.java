@@ -0,0 +1,61 @@
+package com.sekhmet.sekhmetapi.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sekhmet.sekhmetapi.domain.Authority;
+import com.sekhmet.sekhmetapi.domain.User;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Test class for the {@link PhoneVerifiedAuthenticationProvider}.
+ */
+class PhoneVerifiedAuthenticationProviderTest {
+
+    private PhoneVerifiedAuthenticationProvider provider;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        provider = new PhoneVerifiedAuthenticationProvider();
+
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user = new User();
+        user.setLogin("237699999999");
+        user.setPhoneNumber("+237699999999");
+        user.setActivated(true);
+        user.setAuthorities(Set.of(authority));
+    }
+
+    @Test
+    void testAuthenticateVerifiedPhoneUser() {
+        Authentication authentication = provider.authenticate(PhoneVerifiedAuthenticationToken.unauthenticated(user));
+
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(authentication.getName()).isEqualTo("237699999999");
+        assertThat(authentication.getPrincipal()).isInstanceOf(UserDetails.class);
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(AuthoritiesConstants.USER);
+    }
+
+    @Test
+    void testNotActivatedUserIsRejected() {
+        user.setActivated(false);
+
+        assertThatThrownBy(() -> provider.authenticate(PhoneVerifiedAuthenticationToken.unauthenticated(user)))
+            .isInstanceOf(UserNotActivatedException.class);
+    }
+
+    @Test
+    void testSupportsOnlyPhoneVerifiedTokens() {
+        assertThat(provider.supports(PhoneVerifiedAuthenticationToken.class)).isTrue();
+        assertThat(provider.supports(UsernamePasswordAuthenticationToken.class)).isFalse();
+    }
+}
@@ -2,6 +2,7 @@ package com.sekhmet.sekhmetapi.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
 import com.sekhmet.sekhmetapi.management.SecurityMetersService;
 import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
 import com.sekhmet.sekhmetapi.service.TwilioService;
@@ -28,6 +29,8 @@ class JWTFilterTest {
 
     private JWTFilter jwtFilter;
 
+    private VerifiedTokenCache verifiedTokenCache;
+
     @MockBean
     private TwilioService twilioService;
 
@@ -44,6 +47,7 @@ class JWTFilterTest {
 
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
         jwtFilter = new JWTFilter(tokenProvider);
+        verifiedTokenCache = new VerifiedTokenCache(new ApplicationProperties(), securityMetersService);
         SecurityContextHolder.getContext().setAuthentication(null);
     }
 
@@ -66,6 +70,29 @@ class JWTFilterTest {
         assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).hasToString(jwt);
     }
 
+    @Test
+    void testJWTFilterWithVerifiedTokenCache() throws Exception {
+        jwtFilter = new JWTFilter(tokenProvider, verifiedTokenCache);
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "test-user",
+            "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+        String jwt = tokenProvider.createToken(authentication, false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        request.setRequestURI("/api/test");
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        assertThat(verifiedTokenCache.get(jwt)).isSameAs(SecurityContextHolder.getContext().getAuthentication());
+
+        SecurityContextHolder.getContext().setAuthentication(null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        jwtFilter.doFilter(request, response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("test-user");
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).hasToString(jwt);
+    }
+
     @Test
     void testJWTFilterInvalidToken() throws Exception {
         String jwt = "wrong_jwt";
@@ -0,0 +1,144 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.TokenEpoch;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import com.sekhmet.sekhmetapi.repository.TokenEpochRepository;
+import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+class TokenEpochStoreTest {
+
+    private static final String INVALID_TOKENS_METER_EXPECTED_NAME = "security.authentication.invalid-tokens";
+
+    private MeterRegistry meterRegistry;
+
+    private TokenEpochRepository tokenEpochRepository;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private TokenEpochStore tokenEpochStore;
+
+    private TokenProvider tokenProvider;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        tokenEpochRepository = mock(TokenEpochRepository.class);
+        when(tokenEpochRepository.findById(any())).thenReturn(Optional.empty());
+        verifiedTokenCache = new VerifiedTokenCache(applicationProperties, securityMetersService);
+        tokenEpochStore = new TokenEpochStore(tokenEpochRepository, verifiedTokenCache, applicationProperties);
+
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties
+            .getSecurity()
+            .getAuthentication()
+            .getJwt()
+            .setBase64Secret("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8");
+        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService, tokenEpochStore);
+    }
+
+    @Test
+    void testRevokedTokensAreRejected() {
+        tokenEpochStore.refresh();
+        String token = tokenProvider.createToken(createAuthentication("user"), false);
+        String otherToken = tokenProvider.createToken(createAuthentication("other"), false);
+
+        tokenEpochStore.revoke("user");
+
+        assertThat(tokenProvider.parseToken(token).getCause()).isEqualTo(TokenValidationResult.Cause.REVOKED);
+        assertThat(tokenProvider.validateToken(otherToken)).isTrue();
+        assertThat(tokenProvider.validateToken(tokenProvider.createToken(createAuthentication("user"), false))).isTrue();
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "revoked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRevocationsOfOtherNodesAreRefreshed() {
+        tokenEpochStore.refresh();
+        String token = tokenProvider.createToken(createAuthentication("user"), false);
+        verifiedTokenCache.put(token, createAuthentication("user"), new Date(System.currentTimeMillis() + 60000));
+        String otherToken = tokenProvider.createToken(createAuthentication("other"), false);
+        verifiedTokenCache.put(otherToken, createAuthentication("other"), new Date(System.currentTimeMillis() + 60000));
+        when(tokenEpochRepository.findAllByRevokedDateAfter(any())).thenReturn(List.of(tokenEpoch("user", 2)));
+
+        tokenEpochStore.refresh();
+
+        assertThat(tokenEpochStore.isRevoked("user", 1)).isTrue();
+        assertThat(tokenEpochStore.isRevoked("user", 2)).isFalse();
+        assertThat(tokenEpochStore.currentEpoch("user")).isEqualTo(2);
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+        // only the tokens of the revoked user are verified again
+        assertThat(verifiedTokenCache.size()).isEqualTo(1);
+        assertThat(verifiedTokenCache.get(otherToken)).isNotNull();
+    }
+
+    @Test
+    void testEpochsAreLoadedAtStartup() {
+        when(tokenEpochRepository.findAll()).thenReturn(List.of(tokenEpoch("user", 2)));
+
+        tokenEpochStore.load();
+
+        assertThat(tokenEpochStore.isRevoked("user", 1)).isTrue();
+        assertThat(tokenEpochStore.isRevoked("user", 2)).isFalse();
+        assertThat(tokenEpochStore.isRevoked("other", 0)).isFalse();
+    }
+
+    @Test
+    void testEpochIsReadFromDatabase() {
+        when(tokenEpochRepository.findById("user")).thenReturn(Optional.of(tokenEpoch("user", 3)));
+
+        assertThat(tokenEpochStore.currentEpoch("user")).isEqualTo(3);
+        assertThat(tokenEpochStore.currentEpoch("other")).isZero();
+    }
+
+    @Test
+    void testTokensCreatedRightAfterARevocationOfAnotherNodeAreValid() {
+        tokenEpochStore.refresh();
+        String token = tokenProvider.createToken(createAuthentication("user"), false);
+        // revoked by another node, not refreshed yet
+        when(tokenEpochRepository.findById("user")).thenReturn(Optional.of(tokenEpoch("user", 2)));
+
+        String newToken = tokenProvider.createToken(createAuthentication("user"), false);
+
+        assertThat(tokenProvider.validateToken(newToken)).isTrue();
+        assertThat(tokenProvider.parseToken(token).getCause()).isEqualTo(TokenValidationResult.Cause.REVOKED);
+        when(tokenEpochRepository.findAllByRevokedDateAfter(any())).thenReturn(List.of(tokenEpoch("user", 2)));
+        tokenEpochStore.refresh();
+        assertThat(tokenProvider.validateToken(newToken)).isTrue();
+    }
+
+    private static TokenEpoch tokenEpoch(String login, int epoch) {
+        TokenEpoch tokenEpoch = new TokenEpoch();
+        tokenEpoch.setLogin(login);
+        tokenEpoch.setEpoch(epoch);
+        tokenEpoch.setRevokedDate(Instant.now());
+        return tokenEpoch;
+    }
+
+    private static Authentication createAuthentication(String login) {
+        return new UsernamePasswordAuthenticationToken(
+            login,
+            "",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * JMH comparison of the ways the {@link JWTFilter} turns a bearer token into an {@link Authentication}.
+ * <p>
+ * Run it from the IDE, or with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sekhmet.sekhmetapi.security.jwt.TokenProviderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private TokenProvider tokenProvider;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private String jwt;
+
+    @Setup
+    public void setup() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        String base64Secret = "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
+        SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
+
+        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        verifiedTokenCache = new VerifiedTokenCache(new ApplicationProperties(), securityMetersService);
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+            "benchmark-user",
+            "benchmark-password",
+            Arrays.asList(new SimpleGrantedAuthority(AuthoritiesConstants.USER), new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN))
+        );
+        jwt = tokenProvider.createToken(authentication, true);
+        Claims claims = tokenProvider.parseToken(jwt).getClaims();
+        verifiedTokenCache.put(jwt, tokenProvider.getAuthentication(claims, jwt), claims.getExpiration());
+    }
+
+    /**
+     * The historical filter path: the token is parsed and verified twice.
+     */
+    @Benchmark
+    public Authentication validateThenGetAuthentication() {
+        if (tokenProvider.validateToken(jwt)) {
+            return tokenProvider.getAuthentication(jwt);
+        }
+        return null;
+    }
+
+    /**
+     * A cache miss: the token is parsed and verified once.
+     */
+    @Benchmark
+    public Authentication parseTokenThenGetAuthentication() {
+        TokenValidationResult result = tokenProvider.parseToken(jwt);
+        return result.isValid() ? tokenProvider.getAuthentication(result.getClaims(), jwt) : null;
+    }
+
+    /**
+     * A cache hit: the token is only digested.
+     */
+    @Benchmark
+    public Authentication verifiedTokenCacheHit() {
+        return verifiedTokenCache.get(jwt);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenProviderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
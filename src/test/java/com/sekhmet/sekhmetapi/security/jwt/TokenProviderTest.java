@@ -88,6 +88,53 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testParseTokenReturnsClaimsWhenJWTisValid() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        TokenValidationResult result = tokenProvider.parseToken(token);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getCause()).isNull();
+        assertThat(result.getClaims().getSubject()).isEqualTo("anonymous");
+    }
+
+    @Test
+    void testParseTokenReturnsCauseWhenJWTisInvalid() {
+        assertThat(tokenProvider.parseToken(createTokenWithDifferentSignature()).getCause())
+            .isEqualTo(TokenValidationResult.Cause.INVALID_SIGNATURE);
+        assertThat(tokenProvider.parseToken(createUnsupportedToken()).getCause()).isEqualTo(TokenValidationResult.Cause.UNSUPPORTED);
+        assertThat(tokenProvider.parseToken("").getCause()).isEqualTo(TokenValidationResult.Cause.ILLEGAL_ARGUMENT);
+
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String expiredToken = tokenProvider.createToken(createAuthentication(), false);
+        TokenValidationResult result = tokenProvider.parseToken(expiredToken);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getClaims()).isNull();
+        assertThat(result.getCause()).isEqualTo(TokenValidationResult.Cause.EXPIRED);
+    }
+
+    @Test
+    void testAuthoritiesAreSharedBetweenTokens() {
+        Collection<GrantedAuthority> authorities = Arrays.asList(
+            new SimpleGrantedAuthority(AuthoritiesConstants.USER),
+            new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)
+        );
+        String firstToken = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("first", "first", authorities), false);
+        String secondToken = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("second", "second", authorities), false);
+
+        Authentication first = tokenProvider.getAuthentication(firstToken);
+        Authentication second = tokenProvider.getAuthentication(secondToken);
+
+        assertThat(first.getName()).isEqualTo("first");
+        assertThat(second.getName()).isEqualTo("second");
+        assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(second.getAuthorities())
+            .zipSatisfies(first.getAuthorities(), (actual, expected) -> assertThat(actual).isSameAs(expected));
+        assertThat(tokenProvider.getAuthorities("ROLE_USER,ROLE_ADMIN")).isSameAs(tokenProvider.getAuthorities("ROLE_USER,ROLE_ADMIN"));
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
@@ -0,0 +1,114 @@
+package com.sekhmet.sekhmetapi.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+class VerifiedTokenCacheTest {
+
+    private static final String TOKEN_CACHE_METER_EXPECTED_NAME = "security.authentication.token-cache";
+
+    private static final long ONE_MINUTE = 60000;
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties applicationProperties;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().getTokenCache().setMaxEntries(10);
+        verifiedTokenCache = new VerifiedTokenCache(applicationProperties, new SecurityMetersService(meterRegistry));
+    }
+
+    @Test
+    void testReturnCachedAuthentication() {
+        Authentication authentication = createAuthentication("token");
+
+        assertThat(verifiedTokenCache.get("token")).isNull();
+        verifiedTokenCache.put("token", authentication, inOneMinute());
+
+        assertThat(verifiedTokenCache.get("token")).isSameAs(authentication);
+        assertThat(verifiedTokenCache.get("other-token")).isNull();
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testDoNotCacheExpiredToken() {
+        verifiedTokenCache.put("token", createAuthentication("token"), new Date(System.currentTimeMillis() - ONE_MINUTE));
+
+        assertThat(verifiedTokenCache.size()).isZero();
+        assertThat(verifiedTokenCache.get("token")).isNull();
+    }
+
+    @Test
+    void testDoNotCacheWhenDisabled() {
+        applicationProperties.getSecurity().getTokenCache().setEnabled(false);
+        verifiedTokenCache = new VerifiedTokenCache(applicationProperties, new SecurityMetersService(meterRegistry));
+
+        verifiedTokenCache.put("token", createAuthentication("token"), inOneMinute());
+
+        assertThat(verifiedTokenCache.get("token")).isNull();
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        for (int i = 0; i < 100; i++) {
+            verifiedTokenCache.put("token-" + i, createAuthentication("token-" + i), inOneMinute());
+        }
+
+        assertThat(verifiedTokenCache.size()).isLessThanOrEqualTo(10);
+        assertThat(verifiedTokenCache.get("token-99")).isNotNull();
+    }
+
+    @Test
+    void testClear() {
+        verifiedTokenCache.put("token", createAuthentication("token"), inOneMinute());
+
+        verifiedTokenCache.clear();
+
+        assertThat(verifiedTokenCache.get("token")).isNull();
+    }
+
+    @Test
+    void testEvictUser() {
+        verifiedTokenCache.put("token", createAuthentication("token"), inOneMinute());
+        verifiedTokenCache.put(
+            "other-token",
+            new UsernamePasswordAuthenticationToken("other-user", "other-token", Collections.emptyList()),
+            inOneMinute()
+        );
+
+        verifiedTokenCache.evictUser("test-user");
+
+        assertThat(verifiedTokenCache.get("token")).isNull();
+        assertThat(verifiedTokenCache.get("other-token")).isNotNull();
+    }
+
+    private Authentication createAuthentication(String token) {
+        return new UsernamePasswordAuthenticationToken(
+            "test-user",
+            token,
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+    }
+
+    private Date inOneMinute() {
+        return new Date(System.currentTimeMillis() + ONE_MINUTE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.sekhmet.sekhmetapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.repository.UserReindexRepository;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.service.dto.ReindexStatusDTO;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Integration tests for {@link ElasticsearchIndexService}, against an Elasticsearch started by Testcontainers.
+ */
+@IntegrationTest
+class ElasticsearchIndexServiceIT {
+
+    // the version of src/main/docker/elasticsearch.yml
+    private static final ElasticsearchContainer elasticsearch = new ElasticsearchContainer(
+        DockerImageName.parse("docker.elastic.co/elasticsearch/elasticsearch:7.13.3")
+    );
+
+    @Autowired
+    private ElasticsearchIndexService elasticsearchIndexService;
+
+    @Autowired
+    private ElasticsearchRestTemplate elasticsearchTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserReindexRepository userReindexRepository;
+
+    @MockBean
+    private TwilioService twilioService;
+
+    @DynamicPropertySource
+    static void elasticsearchProperties(DynamicPropertyRegistry registry) {
+        elasticsearch.start();
+        registry.add("spring.elasticsearch.rest.uris", elasticsearch::getHttpHostAddress);
+    }
+
+    @AfterAll
+    static void stopElasticsearch() {
+        elasticsearch.stop();
+    }
+
+    @Test
+    void testReindexReplacesTheIndexBehindTheAlias() throws InterruptedException {
+        String alias = elasticsearchTemplate.getIndexCoordinatesFor(User.class).getIndexName();
+        String previousIndex = alias + "-previous";
+        elasticsearchTemplate.indexOps(IndexCoordinates.of(previousIndex)).create();
+        elasticsearchTemplate.execute(client ->
+            client
+                .indices()
+                .updateAliases(
+                    new IndicesAliasesRequest()
+                        .addAliasAction(IndicesAliasesRequest.AliasActions.add().index(previousIndex).alias(alias)),
+                    RequestOptions.DEFAULT
+                )
+        );
+
+        elasticsearchIndexService.reindexAll();
+
+        ReindexStatusDTO status = awaitReindex();
+        assertThat(status.getState()).isEqualTo(ReindexStatusDTO.State.COMPLETED);
+        assertThat(status.getIndexed()).isEqualTo(status.getTotal());
+        Set<String> indices = elasticsearchTemplate.execute(client ->
+            client.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases().keySet()
+        );
+        assertThat(indices).containsExactly(status.getIndex());
+        assertThat(elasticsearchTemplate.indexOps(IndexCoordinates.of(previousIndex)).exists()).isFalse();
+        // the changes are indexed again
+        assertThat(userReindexRepository.count()).isZero();
+
+        SearchHits<User> hits = elasticsearchTemplate.search(
+            new NativeSearchQueryBuilder().withQuery(QueryBuilders.termQuery("login", "admin")).build(),
+            User.class,
+            IndexCoordinates.of(alias)
+        );
+        assertThat(hits.getSearchHits())
+            .extracting(SearchHit::getId)
+            .containsExactly(userRepository.findOneByLogin("admin").orElseThrow().getId().toString());
+    }
+
+    private ReindexStatusDTO awaitReindex() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        ReindexStatusDTO status = elasticsearchIndexService.getReindexStatus();
+        while (status.getFinishedDate() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            status = elasticsearchIndexService.getReindexStatus();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sekhmet.sekhmetapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+/**
+ * Test class for the access tokens of the {@link TwilioConversationService}.
+ */
+class TwilioConversationServiceTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private TwilioConversationService conversationService;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        ApplicationProperties.SmsProperties.TwilioPreperties twilio = applicationProperties.getSms().getTwilio();
+        twilio.setAccountSid("ACxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx");
+        twilio.setApiSid("SKxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx");
+        twilio.setApiSecret("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8");
+        twilio.setConversationSid("ISxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx");
+        meterRegistry = new SimpleMeterRegistry();
+        conversationService =
+            new TwilioConversationService(
+                mock(UserService.class),
+                applicationProperties,
+                new ConcurrentMapCacheManager(TwilioConversationService.ACCESS_TOKENS_CACHE),
+                meterRegistry,
+                new SecurityMetersService(meterRegistry)
+            );
+    }
+
+    @Test
+    void testAccessTokenIsReusedUntilRefreshWindow() {
+        UUID userId = UUID.randomUUID();
+
+        String token = conversationService.generateAccessToken(userId);
+
+        assertThat(conversationService.generateAccessToken(userId)).isEqualTo(token);
+        assertThat(conversationService.generateAccessToken(UUID.randomUUID())).isNotEqualTo(token);
+        assertThat(meterRegistry.get(TwilioConversationService.ACCESS_TOKENS_METER_NAME).tag("result", "cache-hit").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get(TwilioConversationService.ACCESS_TOKENS_METER_NAME).tag("result", "minted").counter().count())
+            .isEqualTo(2);
+        assertThat(
+            meterRegistry.get(SecurityMetersService.TWILIO_TOKEN_MINTING_METER_NAME).tag("outcome", "success").timer().count()
+        )
+            .isEqualTo(2);
+    }
+
+    @Test
+    void testAccessTokenIsMintedAgainWithinRefreshWindow() {
+        applicationProperties.getSms().getTwilio().setAccessTokenRefreshWindowSeconds(86400);
+        UUID userId = UUID.randomUUID();
+
+        conversationService.generateAccessToken(userId);
+        conversationService.generateAccessToken(userId);
+
+        assertThat(meterRegistry.get(TwilioConversationService.ACCESS_TOKENS_METER_NAME).tag("result", "cache-hit").counter().count())
+            .isZero();
+        assertThat(meterRegistry.get(TwilioConversationService.ACCESS_TOKENS_METER_NAME).tag("result", "minted").counter().count())
+            .isEqualTo(2);
+    }
+}
@@ -0,0 +1,205 @@
+package com.sekhmet.sekhmetapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.domain.UserIndexTask;
+import com.sekhmet.sekhmetapi.repository.UserIndexTaskRepository;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
+import com.sekhmet.sekhmetapi.web.rest.UserResourceIT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for {@link UserSearchIndexer}, committing their transactions.
+ */
+@IntegrationTest
+class UserSearchIndexerIT {
+
+    @Autowired
+    private UserSearchIndexer userSearchIndexer;
+
+    @Autowired
+    private UserIndexTaskRepository userIndexTaskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * This repository is mocked in the com.sekhmet.sekhmetapi.repository.search test package.
+     *
+     * @see com.sekhmet.sekhmetapi.repository.search.UserSearchRepositoryMockConfiguration
+     */
+    @Autowired
+    private UserSearchRepository mockUserSearchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @MockBean
+    private TwilioService twilioService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    @BeforeEach
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // left by the tests committing user changes
+        userIndexTaskRepository.deleteAll();
+        user = userRepository.saveAndFlush(UserResourceIT.initTestUser());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        userIndexTaskRepository.deleteAll();
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangesOfAUserAreIndexedOnce() {
+        transactionTemplate.executeWithoutResult(status -> {
+            userSearchIndexer.enqueue(user);
+            userSearchIndexer.enqueue(user);
+        });
+
+        userSearchIndexer.flush();
+
+        ArgumentCaptor<Iterable<User>> users = ArgumentCaptor.forClass(Iterable.class);
+        verify(mockUserSearchRepository).saveAll(users.capture());
+        assertThat(users.getValue()).extracting(User::getId).containsExactly(user.getId());
+        verify(mockUserSearchRepository, never()).deleteAllById(any());
+        assertThat(userIndexTaskRepository.count()).isZero();
+    }
+
+    @Test
+    void testQueueIsOnlyReadOnceChangesCommitted() {
+        UserIndexTaskRepository mockUserIndexTaskRepository = mock(UserIndexTaskRepository.class);
+        UserSearchIndexer idleUserSearchIndexer = new UserSearchIndexer(
+            mockUserIndexTaskRepository,
+            userRepository,
+            mockUserSearchRepository,
+            transactionManager,
+            Runnable::run,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+
+        idleUserSearchIndexer.flushCommitted();
+
+        verifyNoInteractions(mockUserIndexTaskRepository);
+
+        // nothing to claim, the gauges are left as they are
+        idleUserSearchIndexer.flush();
+
+        verify(mockUserIndexTaskRepository).findAllUserIdsToIndex(any(), any());
+        verify(mockUserIndexTaskRepository, never()).count();
+
+        idleUserSearchIndexer.poll();
+
+        verify(mockUserIndexTaskRepository).count();
+    }
+
+    @Test
+    void testCommittedChangesAreFlushed() {
+        transactionTemplate.executeWithoutResult(status -> userSearchIndexer.enqueue(user));
+
+        userSearchIndexer.flushCommitted();
+
+        verify(mockUserSearchRepository).saveAll(any());
+        assertThat(userIndexTaskRepository.count()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeletedUsersAreDeletedFromTheIndex() {
+        User deleted = new User();
+        deleted.setId(UUID.randomUUID());
+        transactionTemplate.executeWithoutResult(status -> userSearchIndexer.enqueue(deleted));
+
+        userSearchIndexer.flush();
+
+        ArgumentCaptor<Iterable<UUID>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(mockUserSearchRepository).deleteAllById(ids.capture());
+        assertThat(ids.getValue()).containsExactly(deleted.getId());
+        verify(mockUserSearchRepository, never()).saveAll(any());
+        assertThat(userIndexTaskRepository.count()).isZero();
+    }
+
+    @Test
+    void testFailedUsersAreRetriedLater() {
+        Map<String, String> failedDocuments = Map.of(user.getId().toString(), "es_rejected_execution_exception");
+        when(mockUserSearchRepository.saveAll(any())).thenThrow(new BulkFailureException("Bulk operation has failures", failedDocuments));
+        transactionTemplate.executeWithoutResult(status -> userSearchIndexer.enqueue(user));
+
+        userSearchIndexer.flush();
+        userSearchIndexer.flush();
+
+        verify(mockUserSearchRepository, times(1)).saveAll(any());
+        List<UserIndexTask> tasks = userIndexTaskRepository.findAll();
+        assertThat(tasks).hasSize(1);
+        assertThat(tasks.get(0).getAttempts()).isEqualTo(1);
+        assertThat(tasks.get(0).getNextAttemptDate()).isAfter(Instant.now());
+    }
+
+    @Test
+    void testUsersAreIndexedByOneNodeAtATime() {
+        // another node, flushing the same queue
+        UserSearchIndexer otherUserSearchIndexer = new UserSearchIndexer(
+            userIndexTaskRepository,
+            userRepository,
+            mockUserSearchRepository,
+            transactionManager,
+            Runnable::run,
+            applicationProperties,
+            new SimpleMeterRegistry()
+        );
+        when(mockUserSearchRepository.saveAll(any()))
+            .thenAnswer(invocation -> {
+                // the user changes again while it is indexed, and the other node flushes meanwhile
+                transactionTemplate.executeWithoutResult(status -> otherUserSearchIndexer.enqueue(user));
+                otherUserSearchIndexer.flush();
+                return invocation.getArgument(0);
+            })
+            .thenAnswer(invocation -> invocation.getArgument(0));
+        transactionTemplate.executeWithoutResult(status -> userSearchIndexer.enqueue(user));
+
+        userSearchIndexer.flush();
+
+        verify(mockUserSearchRepository, times(1)).saveAll(any());
+        // only the task claimed by the first node is done, the change made meanwhile is left to the next flush
+        assertThat(userIndexTaskRepository.findAll()).extracting(UserIndexTask::getLockedBy).containsExactly((String) null);
+
+        otherUserSearchIndexer.flush();
+
+        verify(mockUserSearchRepository, times(2)).saveAll(any());
+        assertThat(userIndexTaskRepository.count()).isZero();
+    }
+}
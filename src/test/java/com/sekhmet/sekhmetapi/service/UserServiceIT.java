@@ -5,6 +5,8 @@ import static org.mockito.Mockito.*;
 
 import com.sekhmet.sekhmetapi.IntegrationTest;
 import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.domain.UserIndexTask;
+import com.sekhmet.sekhmetapi.repository.UserIndexTaskRepository;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
 import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
 import java.time.Instant;
@@ -47,6 +49,9 @@ class UserServiceIT {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserIndexTaskRepository userIndexTaskRepository;
+
     @MockBean
     private TwilioService twilioService;
 
@@ -173,8 +178,9 @@ class UserServiceIT {
         users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo);
         assertThat(users).isEmpty();
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, times(1)).delete(user);
+        // Verify the user is queued for deletion from Elasticsearch, once the transaction commits
+        verify(mockUserSearchRepository, never()).delete(user);
+        assertThat(userIndexTaskRepository.findAll()).extracting(UserIndexTask::getUserId).contains(dbUser.getId());
     }
 
     @Test
@@ -195,5 +201,6 @@ class UserServiceIT {
 
         // Verify Elasticsearch mock
         verify(mockUserSearchRepository, never()).delete(user);
+        assertThat(userIndexTaskRepository.findAll()).extracting(UserIndexTask::getUserId).doesNotContain(dbUser.getId());
     }
 }
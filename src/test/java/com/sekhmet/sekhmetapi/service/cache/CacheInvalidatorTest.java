@@ -0,0 +1,200 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Test class for the {@link CacheInvalidator}, with two nodes sharing an {@link InMemoryCacheInvalidationBus}.
+ */
+class CacheInvalidatorTest {
+
+    private static final String CACHE = "users";
+
+    private MeterRegistry meterRegistry;
+
+    private CacheManager localCacheManager;
+
+    private CacheManager peerCacheManager;
+
+    private org.hibernate.Cache localHibernateCache;
+
+    private org.hibernate.Cache peerHibernateCache;
+
+    private CacheInvalidator cacheInvalidator;
+
+    @BeforeEach
+    public void setup() {
+        InMemoryCacheInvalidationBus bus = new InMemoryCacheInvalidationBus();
+        meterRegistry = new SimpleMeterRegistry();
+        localCacheManager = new ConcurrentMapCacheManager(CACHE);
+        peerCacheManager = new ConcurrentMapCacheManager(CACHE);
+        localHibernateCache = mock(org.hibernate.Cache.class);
+        peerHibernateCache = mock(org.hibernate.Cache.class);
+        cacheInvalidator = new CacheInvalidator(localCacheManager, bus, entityManagerFactory(localHibernateCache), meterRegistry);
+        new CacheInvalidator(peerCacheManager, bus, entityManagerFactory(peerHibernateCache), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testEntriesAreEvictedOnAllNodes() {
+        UUID id = UUID.randomUUID();
+        localCacheManager.getCache(CACHE).put(id, "local");
+        peerCacheManager.getCache(CACHE).put(id, "peer");
+        peerCacheManager.getCache(CACHE).put("other", "peer");
+
+        cacheInvalidator.evict(CACHE, id);
+
+        assertThat(localCacheManager.getCache(CACHE).get(id)).isNull();
+        assertThat(peerCacheManager.getCache(CACHE).get(id)).isNull();
+        assertThat(peerCacheManager.getCache(CACHE).get("other")).isNotNull();
+        assertThat(meterRegistry.get(CacheInvalidator.INVALIDATIONS_METER_NAME).tag("direction", "published").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get(CacheInvalidator.INVALIDATIONS_METER_NAME).tag("direction", "applied").counter().count())
+            .isZero();
+    }
+
+    @Test
+    void testEntriesCachedBeforeTheCommitAreEvictedAgain() {
+        UUID id = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cacheInvalidator.evict(CACHE, id);
+            // a concurrent miss, reading the row before the commit
+            localCacheManager.getCache(CACHE).put(id, "stale");
+            peerCacheManager.getCache(CACHE).put(id, "stale");
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(localCacheManager.getCache(CACHE).get(id)).isNull();
+        assertThat(peerCacheManager.getCache(CACHE).get(id)).isNull();
+    }
+
+    @Test
+    void testRegisteredSingleFlightCachesAreEvicted() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(localCacheManager.getCache(CACHE), null, 0, true, meterRegistry);
+        cacheInvalidator.register(singleFlightCache);
+        UUID id = UUID.randomUUID();
+        long generation = singleFlightCache.generation();
+
+        cacheInvalidator.evict(CACHE, id);
+        // loaded before the eviction
+        singleFlightCache.put(id, "stale", generation);
+
+        assertThat(localCacheManager.getCache(CACHE).get(id)).isNull();
+    }
+
+    @Test
+    void testEntitiesAreOnlyEvictedFromThePeers() {
+        UUID id = UUID.randomUUID();
+
+        cacheInvalidator.evictEntity(String.class, id);
+        cacheInvalidator.evictCollection("java.lang.String.chars", id);
+
+        verify(peerHibernateCache).evictEntityData("java.lang.String", id);
+        verify(peerHibernateCache).evictCollectionData("java.lang.String.chars", id);
+        verifyNoInteractions(localHibernateCache);
+    }
+
+    @Test
+    void testInvalidationsAreEncodedWithTheirKeyType() {
+        UUID id = UUID.randomUUID();
+
+        assertThat(roundTrip(new CacheInvalidation("node", CacheInvalidation.Kind.CACHE, CACHE, "user|one@localhost")))
+            .isEqualTo(new CacheInvalidation("node", CacheInvalidation.Kind.CACHE, CACHE, "user|one@localhost"));
+        assertThat(roundTrip(new CacheInvalidation("node", CacheInvalidation.Kind.ENTITY, CACHE, id)).getKey()).isEqualTo(id);
+        assertThat(roundTrip(new CacheInvalidation("node", CacheInvalidation.Kind.CACHE, CACHE, 42L)).getKey()).isEqualTo(42L);
+        assertThat(roundTrip(new CacheInvalidation("node", CacheInvalidation.Kind.ALL, null, null)))
+            .isEqualTo(new CacheInvalidation("node", CacheInvalidation.Kind.ALL, null, null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInvalidationsTooLongForPostgresClearTheWholeCache() throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PostgresCacheInvalidationBus bus = new PostgresCacheInvalidationBus(
+            jdbcTemplate,
+            new DataSourceProperties(),
+            new ApplicationProperties(),
+            meterRegistry
+        );
+        CacheInvalidator postgresCacheInvalidator = new CacheInvalidator(
+            localCacheManager,
+            bus,
+            entityManagerFactory(localHibernateCache),
+            new SimpleMeterRegistry()
+        );
+        CacheInvalidator peerCacheInvalidator = new CacheInvalidator(
+            peerCacheManager,
+            new InMemoryCacheInvalidationBus(),
+            entityManagerFactory(peerHibernateCache),
+            new SimpleMeterRegistry()
+        );
+        peerCacheManager.getCache(CACHE).put("other", "peer");
+
+        postgresCacheInvalidator.evict(CACHE, "x".repeat(8000));
+        postgresCacheInvalidator.evict(CACHE, "short");
+
+        ArgumentCaptor<PreparedStatementCallback<Boolean>> callbacks = ArgumentCaptor.forClass(PreparedStatementCallback.class);
+        verify(jdbcTemplate, times(2)).execute(anyString(), callbacks.capture());
+        List<String> payloads = notifiedPayloads(callbacks.getAllValues());
+        CacheInvalidation widened = CacheInvalidation.decode(payloads.get(0));
+        assertThat(widened.getName()).isEqualTo(CACHE);
+        assertThat(widened.getKey()).isNull();
+        assertThat(CacheInvalidation.decode(payloads.get(1)).getKey()).isEqualTo("short");
+        assertThat(
+            meterRegistry.get(PostgresCacheInvalidationBus.WIDENED_INVALIDATIONS_METER_NAME).tag("name", CACHE).counter().count()
+        )
+            .isEqualTo(1);
+
+        peerCacheInvalidator.apply(widened);
+
+        assertThat(peerCacheManager.getCache(CACHE).get("other")).isNull();
+    }
+
+    private static List<String> notifiedPayloads(List<PreparedStatementCallback<Boolean>> callbacks) throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        for (PreparedStatementCallback<Boolean> callback : callbacks) {
+            callback.doInPreparedStatement(statement);
+        }
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(statement, times(callbacks.size())).setString(eq(2), payloads.capture());
+        return payloads.getAllValues();
+    }
+
+    private static CacheInvalidation roundTrip(CacheInvalidation invalidation) {
+        return CacheInvalidation.decode(invalidation.encode());
+    }
+
+    private static EntityManagerFactory entityManagerFactory(org.hibernate.Cache hibernateCache) {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(hibernateCache);
+        return entityManagerFactory;
+    }
+}
@@ -0,0 +1,217 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * Test class for the {@link SingleFlightCache}.
+ */
+class SingleFlightCacheTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(60);
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+
+    private Cache cache;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ConcurrentMapCache("users");
+    }
+
+    @Test
+    void testConcurrentMissesAreLoadedOnce() throws Exception {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+            singleFlightCache.get(
+                "user",
+                () -> {
+                    loading.countDown();
+                    release.await();
+                    loads.incrementAndGet();
+                    return "loaded";
+                }
+            )
+        );
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlightCache.get("user", this::load));
+        while (count("coalesced") == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void testValuesLoadedWhileEvictedAreNotCached() throws Exception {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() ->
+            singleFlightCache.get(
+                "user",
+                () -> {
+                    loading.countDown();
+                    release.await();
+                    return "stale";
+                }
+            )
+        );
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        singleFlightCache.evict("user");
+        // not coalesced with the evicted load
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+        release.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        assertThat(cache.get("user")).isNull();
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void testValuesLoadedAlongWhileEvictedAreNotCached() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+        long generation = singleFlightCache.generation();
+        singleFlightCache.put("user", "fresh", generation);
+
+        singleFlightCache.evict("other");
+        singleFlightCache.put("user", "stale", generation);
+
+        assertThat(singleFlightCache.getIfPresent("user")).isNull();
+        singleFlightCache.put("user", "fresh", singleFlightCache.generation());
+        assertThat(singleFlightCache.getIfPresent("user").get()).isEqualTo("fresh");
+    }
+
+    @Test
+    void testValuesLoadedWhileClearedAreNotCached() throws Exception {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+        singleFlightCache.get("other", this::load);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() ->
+            singleFlightCache.get(
+                "user",
+                () -> {
+                    loading.countDown();
+                    release.await();
+                    return "stale";
+                }
+            )
+        );
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        singleFlightCache.clear();
+        release.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        assertThat(cache.get("user")).isNull();
+        assertThat(cache.get("other")).isNull();
+    }
+
+    @Test
+    void testMissingValuesAreCached() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+
+        assertThat(singleFlightCache.<String>get("user", () -> null)).isNull();
+        assertThat(singleFlightCache.get("user", this::load)).isNull();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void testMissingValuesAreNotCachedWhenDisabled() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, false, meterRegistry, now::get);
+
+        assertThat(singleFlightCache.<String>get("user", () -> null)).isNull();
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void testFailedLoadsAreNotCached() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+
+        assertThatThrownBy(() ->
+                singleFlightCache.get(
+                    "user",
+                    () -> {
+                        throw new IllegalStateException("Database is down");
+                    }
+                )
+            )
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlightCache.get("user", this::load)).isEqualTo("loaded");
+    }
+
+    @Test
+    void testEntriesAreRefreshedBeforeTheyExpire() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, TIME_TO_LIVE, 1, true, meterRegistry, now::get);
+        singleFlightCache.get("user", this::slowLoad);
+
+        now.addAndGet(TIME_TO_LIVE.toMillis() / 2);
+        singleFlightCache.get("user", this::slowLoad);
+        assertThat(loads).hasValue(1);
+
+        // a second before the expiry of an entry taking a second to load: refreshed most of the time
+        now.addAndGet(TIME_TO_LIVE.toMillis() / 2 - 1000);
+        for (int i = 0; i < 100 && loads.get() == 1; i++) {
+            singleFlightCache.get("user", this::slowLoad);
+        }
+        assertThat(loads).hasValue(2);
+        assertThat(count("early-refresh")).isEqualTo(1);
+    }
+
+    @Test
+    void testEntriesAreNotRefreshedEarlyWithoutTimeToLive() {
+        SingleFlightCache singleFlightCache = new SingleFlightCache(cache, null, 1, true, meterRegistry, now::get);
+        singleFlightCache.get("user", this::slowLoad);
+
+        now.addAndGet(TIME_TO_LIVE.toMillis() * 10);
+        for (int i = 0; i < 100; i++) {
+            singleFlightCache.get("user", this::slowLoad);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    private String load() {
+        loads.incrementAndGet();
+        return "loaded";
+    }
+
+    private String slowLoad() {
+        now.addAndGet(1000);
+        return load();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(SingleFlightCache.SINGLE_FLIGHT_METER_NAME).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,164 @@
+package com.sekhmet.sekhmetapi.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.domain.User;
+import com.sekhmet.sekhmetapi.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Test class for the {@link UserCache}.
+ */
+class UserCacheTest {
+
+    private static final String LOGIN = "johndoe";
+    private static final String EMAIL = "johndoe@localhost";
+    private static final String PHONE_NUMBER = "+237699999999";
+
+    private UserRepository userRepository;
+
+    private User user;
+
+    private UserCache userCache;
+
+    @BeforeEach
+    public void setup() {
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setLogin(LOGIN);
+        user.setEmail(EMAIL);
+        user.setPhoneNumber(PHONE_NUMBER);
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findOneWithAuthoritiesById(user.getId())).thenReturn(Optional.of(user));
+        when(userRepository.findOneWithAuthoritiesByLogin(LOGIN)).thenReturn(Optional.of(user));
+        when(userRepository.findOneWithAuthoritiesByEmailIgnoreCase(any())).thenReturn(Optional.of(user));
+        when(userRepository.findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER)).thenReturn(Optional.of(user));
+
+        CacheManager cacheManager = new ConcurrentMapCacheManager(
+            UserRepository.USERS_BY_ID_CACHE,
+            UserRepository.USERS_BY_LOGIN_CACHE,
+            UserRepository.USERS_BY_EMAIL_CACHE,
+            UserRepository.USERS_BY_PHONE_NUMBER_CACHE
+        );
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(mock(org.hibernate.Cache.class));
+        CacheInvalidator cacheInvalidator = new CacheInvalidator(
+            cacheManager,
+            new InMemoryCacheInvalidationBus(),
+            entityManagerFactory,
+            meterRegistry
+        );
+        userCache =
+            new UserCache(userRepository, cacheInvalidator, cacheManager, new ApplicationProperties(), new JHipsterProperties(), meterRegistry);
+    }
+
+    @Test
+    void testUserIsCachedOnceForAllItsKeys() {
+        assertThat(userCache.findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER)).contains(user);
+        assertThat(userCache.findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER)).contains(user);
+        assertThat(userCache.findById(user.getId())).contains(user);
+        assertThat(userCache.findOneWithAuthoritiesByEmail(EMAIL.toUpperCase())).contains(user);
+        assertThat(userCache.findOneWithAuthoritiesByEmail(EMAIL)).contains(user);
+
+        verify(userRepository).findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER);
+        verify(userRepository).findOneWithAuthoritiesByEmailIgnoreCase(any());
+        verify(userRepository, never()).findOneWithAuthoritiesById(any());
+    }
+
+    @Test
+    void testUserIsEvictedUnderAllItsKeys() {
+        userCache.findOneWithAuthoritiesByLogin(LOGIN);
+        userCache.findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER);
+
+        userCache.evict(user);
+        userCache.findOneWithAuthoritiesByLogin(LOGIN);
+        userCache.findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER);
+
+        verify(userRepository, times(2)).findOneWithAuthoritiesByLogin(LOGIN);
+        verify(userRepository, times(2)).findOneWithAuthoritiesByPhoneNumber(PHONE_NUMBER);
+    }
+
+    @Test
+    void testStaleKeysAreNotResolved() {
+        userCache.findOneWithAuthoritiesByLogin(LOGIN);
+        User renamed = new User();
+        renamed.setId(user.getId());
+        renamed.setLogin("janedoe");
+        when(userRepository.findOneWithAuthoritiesById(user.getId())).thenReturn(Optional.of(renamed));
+        when(userRepository.findOneWithAuthoritiesByLogin(LOGIN)).thenReturn(Optional.empty());
+
+        // only the user itself was evicted so far
+        userCache.evict(renamed);
+
+        assertThat(userCache.findOneWithAuthoritiesByLogin(LOGIN)).isEmpty();
+        assertThat(userCache.findById(user.getId())).contains(renamed);
+    }
+
+    @Test
+    void testMissingUsersAreCached() {
+        assertThat(userCache.findOneWithAuthoritiesByLogin("unknown")).isEmpty();
+        assertThat(userCache.findOneWithAuthoritiesByLogin("unknown")).isEmpty();
+
+        verify(userRepository).findOneWithAuthoritiesByLogin("unknown");
+    }
+
+    @Test
+    void testMissingPhoneNumbersAndEmailsAreNotCached() {
+        String phoneNumber = "+33600000000";
+        String email = "registered@localhost";
+        when(userRepository.findOneWithAuthoritiesByPhoneNumber(phoneNumber)).thenReturn(Optional.empty());
+        when(userRepository.findOneWithAuthoritiesByEmailIgnoreCase(email)).thenReturn(Optional.empty());
+        assertThat(userCache.findOneWithAuthoritiesByPhoneNumber(phoneNumber)).isEmpty();
+        assertThat(userCache.findOneWithAuthoritiesByEmail(email)).isEmpty();
+
+        // registered by a concurrent request
+        User registered = new User();
+        registered.setId(UUID.randomUUID());
+        registered.setEmail(email);
+        registered.setPhoneNumber(phoneNumber);
+        when(userRepository.findOneWithAuthoritiesById(registered.getId())).thenReturn(Optional.of(registered));
+        when(userRepository.findOneWithAuthoritiesByPhoneNumber(phoneNumber)).thenReturn(Optional.of(registered));
+        when(userRepository.findOneWithAuthoritiesByEmailIgnoreCase(email)).thenReturn(Optional.of(registered));
+
+        assertThat(userCache.findOneWithAuthoritiesByPhoneNumber(phoneNumber)).contains(registered);
+        assertThat(userCache.findOneWithAuthoritiesByEmail(email)).contains(registered);
+    }
+
+    @Test
+    void testMissingUsersAreLoadedWithASingleQuery() {
+        UUID unknownId = UUID.randomUUID();
+        User other = new User();
+        other.setId(UUID.randomUUID());
+        when(userRepository.findAllWithAuthoritiesByIdIn(any())).thenReturn(List.of(other));
+        userCache.findById(user.getId());
+
+        assertThat(userCache.findAllByIds(List.of(user.getId(), other.getId(), unknownId)))
+            .containsOnlyKeys(user.getId(), other.getId());
+        assertThat(userCache.findAllByIds(List.of(user.getId(), other.getId(), unknownId)))
+            .containsOnlyKeys(user.getId(), other.getId());
+        assertThat(userCache.findById(other.getId())).contains(other);
+
+        verify(userRepository).findAllWithAuthoritiesByIdIn(Set.of(other.getId(), unknownId));
+        verify(userRepository).findAllWithAuthoritiesByIdIn(Set.of(unknownId));
+    }
+}
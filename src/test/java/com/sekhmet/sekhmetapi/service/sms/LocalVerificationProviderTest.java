@@ -0,0 +1,116 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.service.dto.sms.CheckPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.StartPhoneVerificationRequest;
+import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
+import com.twilio.rest.verify.v2.service.Verification;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.StaticMessageSource;
+
+/**
+ * Test class for the {@link LocalVerificationProvider}.
+ */
+class LocalVerificationProviderTest {
+
+    private static final String PHONE_NUMBER = "+33600000001";
+
+    private ApplicationProperties applicationProperties;
+
+    private CapturingSmsGateway smsGateway;
+
+    private LocalVerificationProvider verificationProvider;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSms().getVerification().getLocal().setMaxAttempts(2);
+        smsGateway = new CapturingSmsGateway();
+        verificationProvider = newVerificationProvider();
+    }
+
+    private LocalVerificationProvider newVerificationProvider() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("smsGateway", smsGateway);
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.setUseCodeAsDefaultMessage(true);
+        messageSource.addMessage("sms.verification.text", Locale.ENGLISH, "{0}");
+        return new LocalVerificationProvider(applicationProperties, beanFactory.getBeanProvider(SmsGateway.class), messageSource);
+    }
+
+    @Test
+    void testRightCodeIsApprovedOnce() {
+        assertThat(verificationProvider.sendVerificationCode(start())).isEqualTo(VerificationStatus.PENDING);
+        String code = smsGateway.messages.get(PHONE_NUMBER);
+        assertThat(code).hasSize(6).containsOnlyDigits();
+
+        assertThat(verificationProvider.checkVerificationCode(check(code))).isEqualTo(VerificationStatus.APPROVED);
+        assertThat(verificationProvider.checkVerificationCode(check(code))).isEqualTo(VerificationStatus.CANCELED);
+        assertThat(verificationProvider.size()).isZero();
+    }
+
+    @Test
+    void testWrongCodesCancelTheVerification() {
+        verificationProvider.sendVerificationCode(start());
+        String code = smsGateway.messages.get(PHONE_NUMBER);
+        String wrongCode = code.equals("000000") ? "000001" : "000000";
+
+        assertThat(verificationProvider.checkVerificationCode(check(wrongCode))).isEqualTo(VerificationStatus.PENDING);
+        assertThat(verificationProvider.checkVerificationCode(check(wrongCode))).isEqualTo(VerificationStatus.PENDING);
+        assertThat(verificationProvider.checkVerificationCode(check(code))).isEqualTo(VerificationStatus.CANCELED);
+    }
+
+    @Test
+    void testExpiredCodeIsCanceled() {
+        applicationProperties.getSms().getVerification().getLocal().setTimeToLiveSeconds(0);
+        verificationProvider = newVerificationProvider();
+        verificationProvider.sendVerificationCode(start());
+
+        assertThat(verificationProvider.checkVerificationCode(check(smsGateway.messages.get(PHONE_NUMBER))))
+            .isEqualTo(VerificationStatus.CANCELED);
+    }
+
+    @Test
+    void testUnknownPhoneNumberIsCanceled() {
+        assertThat(verificationProvider.checkVerificationCode(check("123456"))).isEqualTo(VerificationStatus.CANCELED);
+    }
+
+    @Test
+    void testCodeIsNotKeptWhenGatewayFails() {
+        smsGateway.failing = true;
+
+        assertThatThrownBy(() -> verificationProvider.sendVerificationCode(start())).isInstanceOf(IllegalStateException.class);
+        assertThat(verificationProvider.size()).isZero();
+    }
+
+    private static StartPhoneVerificationRequest start() {
+        return new StartPhoneVerificationRequest(PHONE_NUMBER, Verification.Channel.SMS, "en");
+    }
+
+    private static CheckPhoneVerificationRequest check(String code) {
+        return new CheckPhoneVerificationRequest(PHONE_NUMBER, code, "en", "en");
+    }
+
+    private static class CapturingSmsGateway implements SmsGateway {
+
+        private final Map<String, String> messages = new HashMap<>();
+
+        private boolean failing;
+
+        @Override
+        public void send(String phoneNumber, String message) {
+            if (failing) {
+                throw new IllegalStateException("Gateway is down");
+            }
+            messages.put(phoneNumber, message);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link SmsVerificationThrottle}.
+ */
+class SmsVerificationThrottleTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        ApplicationProperties.SmsProperties.RateLimit rateLimit = applicationProperties.getSms().getRateLimit();
+        rateLimit.getSendPerPhoneNumber().setCapacity(1);
+        rateLimit.getSendPerClientIp().setCapacity(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testSendIsRateLimitedPerPhoneNumber() {
+        SmsVerificationThrottle throttle = new SmsVerificationThrottle(applicationProperties, meterRegistry);
+
+        throttle.acquireSend("+33600000001", "10.0.0.1");
+
+        assertThatThrownBy(() -> throttle.acquireSend("+33600000001", "10.0.0.2"))
+            .isInstanceOf(SmsRateLimitExceededException.class)
+            .extracting(e -> ((SmsRateLimitExceededException) e).getRetryAfterSeconds())
+            .isEqualTo(600L);
+        assertThat(
+            meterRegistry
+                .get(SmsVerificationThrottle.REJECTED_METER_NAME)
+                .tag("operation", "send")
+                .tag("key", "phone-number")
+                .counter()
+                .count()
+        )
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testSendIsRateLimitedPerClientIp() {
+        SmsVerificationThrottle throttle = new SmsVerificationThrottle(applicationProperties, meterRegistry);
+
+        throttle.acquireSend("+33600000001", "10.0.0.1");
+        throttle.acquireSend("+33600000002", "10.0.0.1");
+
+        assertThatThrownBy(() -> throttle.acquireSend("+33600000003", "10.0.0.1")).isInstanceOf(SmsRateLimitExceededException.class);
+        assertThat(
+            meterRegistry.get(SmsVerificationThrottle.REJECTED_METER_NAME).tag("operation", "send").tag("key", "client-ip").counter().count()
+        )
+            .isEqualTo(1);
+        throttle.acquireCheck("+33600000001", "10.0.0.1");
+    }
+
+    @Test
+    void testRequestsRejectedPerPhoneNumberTakeNoTokenPerClientIp() {
+        SmsVerificationThrottle throttle = new SmsVerificationThrottle(applicationProperties, meterRegistry);
+
+        throttle.acquireSend("+33600000001", "10.0.0.1");
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> throttle.acquireSend("+33600000001", "10.0.0.1")).isInstanceOf(SmsRateLimitExceededException.class);
+        }
+
+        throttle.acquireSend("+33600000002", "10.0.0.1");
+        assertThatThrownBy(() -> throttle.acquireSend("+33600000003", "10.0.0.1")).isInstanceOf(SmsRateLimitExceededException.class);
+        assertThat(
+            meterRegistry.get(SmsVerificationThrottle.REJECTED_METER_NAME).tag("operation", "send").tag("key", "client-ip").counter().count()
+        )
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testNothingIsRateLimitedWhenDisabled() {
+        applicationProperties.getSms().getRateLimit().setEnabled(false);
+        SmsVerificationThrottle throttle = new SmsVerificationThrottle(applicationProperties, meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            throttle.acquireSend("+33600000001", "10.0.0.1");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sekhmet.sekhmetapi.service.sms;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link TokenBucketRateLimiter}.
+ */
+class TokenBucketRateLimiterTest {
+
+    private AtomicLong clock;
+
+    private TokenBucketRateLimiter limiter;
+
+    @BeforeEach
+    public void setup() {
+        clock = new AtomicLong(-TimeUnit.DAYS.toNanos(1));
+        limiter = new TokenBucketRateLimiter(3, 60, 10, clock::get);
+    }
+
+    @Test
+    void testBurstUpToCapacity() {
+        assertThat(limiter.tryAcquire("key")).isZero();
+        assertThat(limiter.tryAcquire("key")).isZero();
+        assertThat(limiter.tryAcquire("key")).isZero();
+
+        assertThat(limiter.tryAcquire("key")).isEqualTo(TimeUnit.SECONDS.toNanos(20));
+        assertThat(limiter.tryAcquire("other")).isZero();
+    }
+
+    @Test
+    void testTokensAreRefilledOverThePeriod() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("key");
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(15));
+        assertThat(limiter.tryAcquire("key")).isEqualTo(TimeUnit.SECONDS.toNanos(5));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.tryAcquire("key")).isZero();
+        assertThat(limiter.tryAcquire("key")).isPositive();
+    }
+
+    @Test
+    void testReleasedTokensAreTakenAgain() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("key");
+        }
+
+        limiter.release("key");
+        assertThat(limiter.tryAcquire("key")).isZero();
+        assertThat(limiter.tryAcquire("key")).isPositive();
+
+        limiter.release("missing");
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testNumberOfKeysIsBounded() {
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("key-" + i);
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void testFullBucketsAreEvictedFirst() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("busy");
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        for (int i = 0; i < 9; i++) {
+            limiter.tryAcquire("key-" + i);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(21));
+
+        limiter.tryAcquire("new");
+
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(limiter.tryAcquire("busy")).isZero();
+        assertThat(limiter.tryAcquire("busy")).isZero();
+        assertThat(limiter.tryAcquire("busy")).isPositive();
+    }
+}
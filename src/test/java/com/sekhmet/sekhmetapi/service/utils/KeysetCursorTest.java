@@ -0,0 +1,55 @@
+package com.sekhmet.sekhmetapi.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Test class for the {@link KeysetCursor}.
+ */
+class KeysetCursorTest {
+
+    @Test
+    void testCursorIsDecodedAsEncoded() {
+        Sort sort = Sort.by(Sort.Order.desc("lastModifiedDate"), Sort.Order.asc("firstName"), Sort.Order.desc("activated"), Sort.Order.asc("id"));
+        KeysetCursor cursor = new KeysetCursor(sort, List.of(Instant.ofEpochSecond(1_600_000_000, 123), "Jöhn|,=", true, UUID.randomUUID()));
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(KeysetCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void testNullValuesAreDecodedAsNull() {
+        Sort sort = Sort.by("lastName", "id");
+        UUID id = UUID.randomUUID();
+        KeysetCursor cursor = new KeysetCursor(sort, Arrays.asList(null, id));
+
+        assertThat(KeysetCursor.decode(cursor.encode()).getValues()).containsExactly(null, id);
+    }
+
+    @Test
+    void testSearchSortValuesAreDecodedAsLongAndDouble() {
+        Sort sort = Sort.by(Sort.Order.desc("_score"), Sort.Order.asc("createdDate"), Sort.Order.asc("id"));
+        KeysetCursor cursor = new KeysetCursor(sort, List.of(1.5f, 1_600_000_000_000L, "7d3b1c2e"));
+
+        assertThat(KeysetCursor.decode(cursor.encode()).getValues()).containsExactly(1.5d, 1_600_000_000_000L, "7d3b1c2e");
+    }
+
+    @Test
+    void testInvalidCursorsAreRejected() {
+        String encoded = new KeysetCursor(Sort.by("login", "id"), List.of("johndoe", UUID.randomUUID())).encode();
+
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(encoded.substring(0, encoded.length() - 4)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new KeysetCursor(Sort.by("login", "id"), List.of("johndoe"))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.sekhmet.sekhmetapi.web.rest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import com.sekhmet.sekhmetapi.service.TwilioService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration tests for the {@link ElasticsearchIndexResource} REST controller.
+ */
+@AutoConfigureMockMvc
+@IntegrationTest
+class ElasticsearchIndexResourceIT {
+
+    @Autowired
+    private MockMvc restMockMvc;
+
+    @MockBean
+    private TwilioService twilioService;
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void getReindexStatus() throws Exception {
+        restMockMvc
+            .perform(get("/api/elasticsearch/index").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.state").value("IDLE"))
+            .andExpect(jsonPath("$.indexed").value(0));
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.USER)
+    void getReindexStatusIsForbiddenToUsers() throws Exception {
+        restMockMvc.perform(get("/api/elasticsearch/index").accept(MediaType.APPLICATION_JSON)).andExpect(status().isForbidden());
+    }
+}
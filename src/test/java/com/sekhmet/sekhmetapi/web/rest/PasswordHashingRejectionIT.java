@@ -0,0 +1,150 @@
+package com.sekhmet.sekhmetapi.web.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.config.ApplicationProperties;
+import com.sekhmet.sekhmetapi.config.Constants;
+import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import com.sekhmet.sekhmetapi.security.BoundedPasswordEncoder;
+import com.sekhmet.sekhmetapi.service.TwilioService;
+import com.sekhmet.sekhmetapi.web.rest.errors.ErrorConstants;
+import com.sekhmet.sekhmetapi.web.rest.vm.LoginVM;
+import com.sekhmet.sekhmetapi.web.rest.vm.ManagedUserVM;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration tests of the authentication and registration endpoints while the password hashing executor is saturated.
+ */
+@AutoConfigureMockMvc
+@IntegrationTest
+class PasswordHashingRejectionIT {
+
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Delegates to {@link #saturatedPasswordEncoder}, whose thread and queue are taken by blocked hashes.
+     */
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private TwilioService twilioService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BoundedPasswordEncoder saturatedPasswordEncoder;
+
+    private CompletableFuture<Void> blockedHashes;
+
+    @BeforeEach
+    public void saturate() throws InterruptedException {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties.SecurityProperties.PasswordHashing passwordHashing =
+            new ApplicationProperties.SecurityProperties.PasswordHashing();
+        passwordHashing.setThreads(1);
+        passwordHashing.setQueueCapacity(1);
+        passwordHashing.setRetryAfterSeconds(RETRY_AFTER_SECONDS);
+        saturatedPasswordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(release), passwordHashing, meterRegistry);
+
+        // one hash running, one waiting
+        blockedHashes =
+            CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> saturatedPasswordEncoder.encode("running")),
+                CompletableFuture.runAsync(() -> saturatedPasswordEncoder.encode("queued"))
+            );
+        while (
+            meterRegistry.get(BoundedPasswordEncoder.PASSWORD_HASHING_METER_PREFIX + ".active").gauge().value() < 1 ||
+            meterRegistry.get(BoundedPasswordEncoder.PASSWORD_HASHING_METER_PREFIX + ".queue").gauge().value() < 1
+        ) {
+            Thread.sleep(10);
+        }
+
+        when(passwordEncoder.matches(any(), any()))
+            .thenAnswer(invocation -> saturatedPasswordEncoder.matches(invocation.getArgument(0), invocation.getArgument(1)));
+        when(passwordEncoder.encode(any())).thenAnswer(invocation -> saturatedPasswordEncoder.encode(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    public void release() throws Exception {
+        release.countDown();
+        blockedHashes.get(5, TimeUnit.SECONDS);
+        saturatedPasswordEncoder.destroy();
+    }
+
+    @Test
+    void testAuthenticationIsRejectedWithRetryAfter() throws Exception {
+        // hashed once by the authentication provider, to compare the passwords of unknown users in the same time
+        when(passwordEncoder.encode(any())).thenReturn("unknown-user-password");
+        LoginVM login = new LoginVM();
+        login.setUsername("admin");
+        login.setPassword("admin");
+
+        mockMvc
+            .perform(post("/api/authenticate").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(login)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)))
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_AUTHENTICATION_BUSY));
+    }
+
+    @Test
+    void testRegistrationIsRejectedWithRetryAfter() throws Exception {
+        ManagedUserVM user = new ManagedUserVM();
+        user.setLogin("password-hashing-rejected");
+        user.setPassword("password");
+        user.setEmail("password-hashing-rejected@example.com");
+        user.setLangKey(Constants.DEFAULT_LANGUAGE);
+        user.setAuthorities(Collections.singleton(AuthoritiesConstants.USER));
+
+        mockMvc
+            .perform(post("/api/register").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(user)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS)))
+            .andExpect(jsonPath("$.message").value(ErrorConstants.ERR_AUTHENTICATION_BUSY));
+    }
+
+    private static class BlockingPasswordEncoder implements PasswordEncoder {
+
+        private final CountDownLatch release;
+
+        BlockingPasswordEncoder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -1,26 +1,56 @@
 package com.sekhmet.sekhmetapi.web.rest;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.jayway.jsonpath.JsonPath;
 import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.config.SqlStatementCounter;
 import com.sekhmet.sekhmetapi.domain.User;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
 import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
 import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import com.sekhmet.sekhmetapi.security.DomainUserDetailsService;
 import com.sekhmet.sekhmetapi.service.TwilioService;
+import com.sekhmet.sekhmetapi.service.utils.KeysetCursor;
+import com.sekhmet.sekhmetapi.web.util.CursorPaginationUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -29,6 +59,7 @@ import org.springframework.transaction.annotation.Transactional;
 @AutoConfigureMockMvc
 @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
 @IntegrationTest
+@ExtendWith(SqlStatementCounter.class)
 class PublicUserResourceIT {
 
     private static final String DEFAULT_LOGIN = "johndoe";
@@ -60,8 +91,10 @@ class PublicUserResourceIT {
 
     @BeforeEach
     public void setup() {
+        cacheManager.getCache(UserRepository.USERS_BY_ID_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+        cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_CACHE).clear();
     }
 
     @BeforeEach
@@ -83,6 +116,41 @@ class PublicUserResourceIT {
             .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN)));
     }
 
+    @Test
+    @Transactional
+    void getAllPublicUsersWithoutAuthorities() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        em.clear();
+        SqlStatementCounter.reset();
+
+        restUserMockMvc.perform(get("/api/users?sort=id,desc").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+
+        // the page and its count, neither of them reading the authorities
+        SqlStatementCounter.assertSelectCount(2);
+        assertThat(SqlStatementCounter.statements()).noneMatch(sql -> sql.contains("skh_user_authority"));
+    }
+
+    @Test
+    @Transactional
+    void searchPublicUsers() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        User deactivated = UserResourceIT.createEntity();
+        deactivated.setActivated(false);
+        userRepository.saveAndFlush(deactivated);
+
+        restUserMockMvc
+            .perform(get("/api/users/search?search=JOHNDOE&sort=login,asc").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN)))
+            .andExpect(jsonPath("$.[0].id").value(user.getId().toString()))
+            .andExpect(jsonPath("$.[0].email").value(user.getEmail()))
+            .andExpect(jsonPath("$.[0].activated").value(true));
+    }
+
     @Test
     @Transactional
     void getAllAuthorities() throws Exception {
@@ -107,4 +175,175 @@ class PublicUserResourceIT {
             .andExpect(status().isBadRequest());
         restUserMockMvc.perform(get("/api/users?sort=id,desc").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
     }
+
+    @Test
+    @Transactional
+    void getPublicUsersByIds() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        restUserMockMvc
+            .perform(
+                post("/api/users/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(UUID.randomUUID(), user.getId(), user.getId())))
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].login").value(DEFAULT_LOGIN));
+
+        // the user is cached now
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_ID_CACHE).get(user.getId())).isNotNull();
+    }
+
+    @Test
+    @Transactional
+    void getPublicUsersByUnknownIdsDoesNotCacheThem() throws Exception {
+        UUID unknownId = UUID.randomUUID();
+
+        restUserMockMvc
+            .perform(
+                post("/api/users/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(unknownId)))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+
+        assertThat(cacheManager.getCache(UserRepository.USERS_BY_ID_CACHE).get(unknownId)).isNull();
+    }
+
+    @Test
+    @Transactional
+    void getPublicUsersByNullId() throws Exception {
+        restUserMockMvc
+            .perform(post("/api/users/batch").contentType(MediaType.APPLICATION_JSON).content("[\"" + UUID.randomUUID() + "\", null]"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getPublicUsersByTooManyIds() throws Exception {
+        List<UUID> ids = IntStream
+            .rangeClosed(0, PublicUserResource.MAX_BATCH_SIZE)
+            .mapToObj(i -> UUID.randomUUID())
+            .collect(Collectors.toList());
+
+        restUserMockMvc
+            .perform(post("/api/users/batch").contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(ids)))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(
+                post("/api/users/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(Collections.emptyList()))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    @Transactional
+    void getAllPublicUsersByCursor() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        User deactivated = UserResourceIT.createEntity();
+        deactivated.setLogin("zdeactivated");
+        deactivated.setActivated(false);
+        userRepository.saveAndFlush(deactivated);
+
+        List<String> logins = new ArrayList<>();
+        String cursor = "";
+        do {
+            MvcResult result = restUserMockMvc
+                .perform(get("/api/users?sort=login,asc&size=1").param("cursor", cursor).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(jsonPath("$.length()").value(lessThanOrEqualTo(1)))
+                .andReturn();
+            logins.addAll(JsonPath.read(result.getResponse().getContentAsString(), "$.[*].login"));
+            cursor = result.getResponse().getHeader(CursorPaginationUtil.HEADER_X_NEXT_CURSOR);
+        } while (cursor != null);
+
+        assertThat(logins).contains(DEFAULT_LOGIN).doesNotContain("zdeactivated").isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    @Transactional
+    void getAllPublicUsersByCursorSortsNullsLast() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        User withoutLastName = UserResourceIT.createEntity();
+        withoutLastName.setLastName(null);
+        userRepository.saveAndFlush(withoutLastName);
+        em.clear();
+
+        for (String direction : List.of("asc", "desc")) {
+            List<String> logins = new ArrayList<>();
+            String cursor = "";
+            do {
+                SqlStatementCounter.reset();
+                MvcResult result = restUserMockMvc
+                    .perform(
+                        get("/api/users?sort=lastName," + direction + "&size=1").param("cursor", cursor).accept(MediaType.APPLICATION_JSON)
+                    )
+                    .andExpect(status().isOk())
+                    .andReturn();
+                // the public columns of the page only, without the authorities
+                SqlStatementCounter.assertSelectCount(1);
+                assertThat(SqlStatementCounter.statements()).noneMatch(sql -> sql.contains("skh_user_authority"));
+                logins.addAll(JsonPath.read(result.getResponse().getContentAsString(), "$.[*].login"));
+                cursor = result.getResponse().getHeader(CursorPaginationUtil.HEADER_X_NEXT_CURSOR);
+            } while (cursor != null);
+
+            assertThat(logins).doesNotHaveDuplicates();
+            assertThat(logins.indexOf(DEFAULT_LOGIN)).isNotNegative().isLessThan(logins.indexOf(withoutLastName.getLogin()));
+        }
+    }
+
+    @Test
+    @Transactional
+    void getAllPublicUsersByInvalidCursor() throws Exception {
+        String cursor = new KeysetCursor(Sort.by("login", "id"), List.of(DEFAULT_LOGIN, UUID.randomUUID())).encode();
+
+        restUserMockMvc
+            .perform(get("/api/users?sort=login,asc").param("cursor", cursor).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk());
+        restUserMockMvc
+            .perform(get("/api/users?sort=email,asc").param("cursor", cursor).accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        restUserMockMvc
+            .perform(get("/api/users").param("cursor", "not a cursor").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchUsersPageIsCapped() throws Exception {
+        SearchHit<User> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(user);
+        SearchHits<User> hits = mock(SearchHits.class);
+        when(hits.stream()).thenReturn(Stream.of(hit));
+        when(hits.getTotalHits()).thenReturn(1L);
+        when(mockUserSearchRepository.search(anyString(), any(Pageable.class), isNull(), eq(true))).thenReturn(hits);
+
+        restUserMockMvc
+            .perform(get("/api/_search/users/john?size=1000").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN)));
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(mockUserSearchRepository).search(eq("john"), pageable.capture(), isNull(), eq(true));
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(100);
+    }
+
+    @Test
+    void searchUsersBeyondTheResultWindow() throws Exception {
+        restUserMockMvc
+            .perform(get("/api/_search/users/john?page=100&size=100").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(mockUserSearchRepository);
+    }
 }
@@ -1,13 +1,19 @@
 package com.sekhmet.sekhmetapi.web.rest;
 
 import static org.hamcrest.Matchers.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.sekhmet.sekhmetapi.IntegrationTest;
 import com.sekhmet.sekhmetapi.domain.User;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
+import com.sekhmet.sekhmetapi.service.TwilioConversationService;
 import com.sekhmet.sekhmetapi.service.TwilioService;
+import com.sekhmet.sekhmetapi.service.dto.sms.VerificationStatus;
 import com.sekhmet.sekhmetapi.web.rest.vm.LoginVM;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +22,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -37,6 +44,9 @@ class UserJWTControllerIT {
     @MockBean
     private TwilioService twilioService;
 
+    @MockBean
+    private TwilioConversationService twilioConversationService;
+
     @Test
     @Transactional
     void testAuthorize() throws Exception {
@@ -95,4 +105,55 @@ class UserJWTControllerIT {
             .andExpect(jsonPath("$.id_token").doesNotExist())
             .andExpect(header().doesNotExist("Authorization"));
     }
+
+    @Test
+    void testSendingCodesIsRateLimitedPerPhoneNumber() throws Exception {
+        when(twilioService.sendVerificationCode(any())).thenReturn(VerificationStatus.PENDING);
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc
+                .perform(get("/api/login").param("phoneNumber", "+33600000101").with(fromClientIp("10.0.1." + i)))
+                .andExpect(status().isOk());
+        }
+        mockMvc
+            .perform(get("/api/login").param("phoneNumber", "+33600000101").with(fromClientIp("10.0.1.3")))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "200"));
+        // the rejected request took no token of its client
+        for (int i = 0; i < 20; i++) {
+            mockMvc
+                .perform(get("/api/login").param("phoneNumber", "+3360000020" + (i % 10) + (i / 10)).with(fromClientIp("10.0.1.3")))
+                .andExpect(status().isOk());
+        }
+        mockMvc
+            .perform(get("/api/login").param("phoneNumber", "+33600000300").with(fromClientIp("10.0.1.3")))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().exists("Retry-After"));
+    }
+
+    private static RequestPostProcessor fromClientIp(String clientIp) {
+        return request -> {
+            request.setRemoteAddr(clientIp);
+            return request;
+        };
+    }
+
+    @Test
+    @Transactional
+    void testVerifyRegistersAndAuthenticatesPhoneUser() throws Exception {
+        when(twilioConversationService.generateAccessToken(any())).thenReturn("twilio-token");
+
+        mockMvc
+            .perform(get("/api/verify").param("phoneNumber", "+237999990001").param("token", "999999").param("langKey", "fr"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id_token").isString())
+            .andExpect(jsonPath("$.id_token").isNotEmpty())
+            .andExpect(jsonPath("$.twilio_token").value("twilio-token"))
+            .andExpect(header().string("Authorization", not(nullValue())));
+
+        User user = userRepository.findOneByPhoneNumber("+237999990001").orElseThrow();
+        assertThat(user.getLogin()).isEqualTo("237999990001");
+        assertThat(user.isActivated()).isTrue();
+        assertThat(passwordEncoder.matches("", user.getPassword())).isFalse();
+    }
 }
@@ -6,11 +6,13 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.sekhmet.sekhmetapi.IntegrationTest;
+import com.sekhmet.sekhmetapi.config.SqlStatementCounter;
 import com.sekhmet.sekhmetapi.domain.Authority;
 import com.sekhmet.sekhmetapi.domain.User;
 import com.sekhmet.sekhmetapi.repository.UserRepository;
 import com.sekhmet.sekhmetapi.repository.search.UserSearchRepository;
 import com.sekhmet.sekhmetapi.security.AuthoritiesConstants;
+import com.sekhmet.sekhmetapi.security.DomainUserDetailsService;
 import com.sekhmet.sekhmetapi.service.TwilioService;
 import com.sekhmet.sekhmetapi.service.dto.AdminUserDTO;
 import com.sekhmet.sekhmetapi.service.mapper.UserMapper;
@@ -22,6 +24,7 @@ import javax.persistence.EntityManager;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -37,6 +40,7 @@ import org.springframework.transaction.annotation.Transactional;
 @AutoConfigureMockMvc
 @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
 @IntegrationTest
+@ExtendWith(SqlStatementCounter.class)
 class UserResourceIT {
 
     private static final String DEFAULT_LOGIN = "johndoe";
@@ -92,8 +96,10 @@ class UserResourceIT {
 
     @BeforeEach
     public void setup() {
+        cacheManager.getCache(UserRepository.USERS_BY_ID_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE).clear();
         cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE).clear();
+        cacheManager.getCache(DomainUserDetailsService.USER_DETAILS_CACHE).clear();
     }
 
     /**
@@ -273,6 +279,41 @@ class UserResourceIT {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    void getAllUsersLoadsAuthoritiesInBatches() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 5; i++) {
+            userRepository.save(createEntity());
+        }
+        userRepository.saveAndFlush(user);
+        em.clear();
+        SqlStatementCounter.reset();
+
+        restUserMockMvc
+            .perform(get("/api/admin/users?sort=id,desc&size=20").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].authorities").exists());
+
+        // the page, its count and a single batch of authorities, whatever the number of users
+        SqlStatementCounter.assertSelectCount(3);
+    }
+
+    @Test
+    @Transactional
+    void getUserFetchesItsAuthoritiesWithIt() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+        em.clear();
+        SqlStatementCounter.reset();
+
+        restUserMockMvc.perform(get("/api/admin/users/{login}", user.getLogin())).andExpect(status().isOk());
+        restUserMockMvc.perform(get("/api/admin/users/{login}", user.getLogin())).andExpect(status().isOk());
+
+        // the user joined to its authorities, then cached
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
     @Test
     @Transactional
     void getUser() throws Exception {